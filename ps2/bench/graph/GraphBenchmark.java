@@ -0,0 +1,297 @@
+package graph;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Microbenchmarks comparing Graph, ConcreteEdgesGraph and ConcreteVerticesGraph
+ * on synthetic graphs.
+ *
+ * <p>For each implementation, degree distribution and graph size, every
+ * operation is run in batches over a freshly loaded graph: warmup batches are
+ * discarded, then measured batches report throughput, average time per
+ * operation and bytes allocated per operation (from the thread allocation
+ * counter, the same source as JMH's gc profiler).
+ *
+ * <p>Like JMH forks, each implementation runs in its own JVM, started with the
+ * same classpath and JVM arguments, so the JIT profile collected for one
+ * implementation cannot bias the code compiled for the next; --forks 0 runs
+ * everything in this JVM instead. Before reporting, each run checks that the
+ * implementation holds exactly the distinct edges of the generated edge list.
+ *
+ * <p>Runs offline with only the JDK, from the ps2 directory:
+ * <pre>
+ *   javac -d bin src/metrics/*.java src/graph/*.java bench/graph/*.java
+ *   java -cp bin graph.GraphBenchmark --impl all --dist uniform,zipf --edges 1000,10000,100000
+ * </pre>
+ * Run without -ea: with assertions on, checkRep() dominates every operation.
+ * Sizes up to 10^7 edges are supported, but ConcreteEdgesGraph and
+ * ConcreteVerticesGraph take O(E) and O(V) per set, so loading them at the
+ * largest sizes takes hours.
+ */
+public class GraphBenchmark {
+
+    private static final Map<String, Supplier<Graph<String>>> IMPLEMENTATIONS = new LinkedHashMap<>();
+    static {
+        IMPLEMENTATIONS.put("Graph", Graph::new);
+        IMPLEMENTATIONS.put("ConcreteEdgesGraph", ConcreteEdgesGraph::new);
+        IMPLEMENTATIONS.put("ConcreteVerticesGraph", ConcreteVerticesGraph::new);
+    }
+
+    private static final long SEED = 42;
+
+    /* Consumes benchmark results so the JIT cannot discard the measured work. */
+    private static long sink;
+
+    /**
+     * One benchmarked operation: run batch.length times against graph,
+     * taking arguments from batch.
+     */
+    private interface Operation {
+        long run(Graph<String> graph, String[] batch, String[] partners);
+    }
+
+    private static final Map<String, Operation> OPERATIONS = new LinkedHashMap<>();
+    private static final List<String> MUTATING = List.of("add", "set", "increment", "remove");
+    static {
+        OPERATIONS.put("add", (graph, batch, partners) -> {
+            long result = 0;
+            for (String vertex : batch) {
+                result += graph.add(vertex) ? 1 : 0;
+            }
+            return result;
+        });
+        OPERATIONS.put("set", (graph, batch, partners) -> {
+            long result = 0;
+            for (int i = 0; i < batch.length; i++) {
+                result += graph.set(batch[i], partners[i], 1 + (i & 7));
+            }
+            return result;
+        });
+        OPERATIONS.put("increment", (graph, batch, partners) -> {
+            long result = 0;
+            for (int i = 0; i < batch.length; i++) {
+                Integer weight = graph.targets(batch[i]).get(partners[i]);
+                result += graph.set(batch[i], partners[i], weight == null ? 1 : weight + 1);
+            }
+            return result;
+        });
+        OPERATIONS.put("remove", (graph, batch, partners) -> {
+            long result = 0;
+            for (String vertex : batch) {
+                result += graph.remove(vertex) ? 1 : 0;
+            }
+            return result;
+        });
+        OPERATIONS.put("targets", (graph, batch, partners) -> {
+            long result = 0;
+            for (String vertex : batch) {
+                result += graph.targets(vertex).size();
+            }
+            return result;
+        });
+        OPERATIONS.put("sources", (graph, batch, partners) -> {
+            long result = 0;
+            for (String vertex : batch) {
+                result += graph.sources(vertex).size();
+            }
+            return result;
+        });
+        OPERATIONS.put("vertices", (graph, batch, partners) -> {
+            long result = 0;
+            for (String vertex : batch) {
+                result += graph.vertices().contains(vertex) ? 1 : 0;
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Run the benchmarks.
+     *
+     * @param args options, each followed by a comma-separated value list:
+     *        --impl (Graph, ConcreteEdgesGraph, ConcreteVerticesGraph or all),
+     *        --dist (uniform, zipf), --edges (sizes), --ops (operation names),
+     *        --batch (operations per batch), --warmup and --iterations (batch counts),
+     *        --forks (1 to run each implementation in its own JVM, 0 to run in this one)
+     * @throws IOException if a forked JVM cannot be started or its output read
+     * @throws InterruptedException if interrupted while waiting for a forked JVM
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("--impl", "all");
+        options.put("--dist", "uniform,zipf");
+        options.put("--edges", "1000,10000,100000");
+        options.put("--ops", String.join(",", OPERATIONS.keySet()));
+        options.put("--batch", "10000");
+        options.put("--warmup", "3");
+        options.put("--iterations", "5");
+        options.put("--forks", "1");
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!options.containsKey(args[i])) {
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+            options.put(args[i], args[i + 1]);
+        }
+
+        List<String> impls = options.get("--impl").equals("all")
+                ? new ArrayList<>(IMPLEMENTATIONS.keySet())
+                : List.of(options.get("--impl").split(","));
+        for (String impl : impls) {
+            if (!IMPLEMENTATIONS.containsKey(impl)) {
+                throw new IllegalArgumentException("Unknown implementation " + impl);
+            }
+        }
+
+        List<String> rows = new ArrayList<>();
+        List<String> footprints = new ArrayList<>();
+        System.out.printf(Locale.ROOT, "%-16s %-22s %-8s %10s %14s %12s %10s%n",
+                "Benchmark", "Impl", "Dist", "Edges", "ops/s", "ns/op", "B/op");
+        if (Integer.parseInt(options.get("--forks")) > 0) {
+            for (String impl : impls) {
+                fork(impl, options, footprints);
+            }
+        } else {
+            run(impls, options, rows, footprints);
+            rows.forEach(System.out::println);
+        }
+        System.out.printf(Locale.ROOT, "%n%-16s %-22s %-8s %10s %14s %12s%n",
+                "Footprint", "Impl", "Dist", "Edges", "bytes", "B/edge");
+        for (String footprint : footprints) {
+            System.out.println(footprint);
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    /*
+     * Benchmark impls in this JVM, adding a line per operation to rows and a
+     * line per loaded graph to footprints.
+     */
+    private static void run(List<String> impls, Map<String, String> options, List<String> rows,
+            List<String> footprints) {
+        int batchSize = Integer.parseInt(options.get("--batch"));
+        int warmup = Integer.parseInt(options.get("--warmup"));
+        int iterations = Integer.parseInt(options.get("--iterations"));
+        for (String dist : options.get("--dist").split(",")) {
+            for (String edges : options.get("--edges").split(",")) {
+                SyntheticGraph data = SyntheticGraph.generate(Integer.parseInt(edges),
+                        SyntheticGraph.Distribution.valueOf(dist.toUpperCase(Locale.ROOT)), SEED);
+                for (String impl : impls) {
+                    Supplier<Graph<String>> factory = IMPLEMENTATIONS.get(impl);
+                    MemoryStats stats = data.loadInto(factory.get()).memoryStats();
+                    if (stats.edgeCount() != data.distinctEdgeCount()) {
+                        throw new IllegalStateException(impl + " loaded " + stats.edgeCount() + " edges, expected "
+                                + data.distinctEdgeCount() + " distinct edges");
+                    }
+                    for (String op : options.get("--ops").split(",")) {
+                        double[] result = measure(op, factory, data, batchSize, warmup, iterations);
+                        rows.add(String.format(Locale.ROOT, "%-16s %-22s %-8s %10d %14.1f %12.1f %10.1f",
+                                "graph." + op, impl, dist, data.edgeCount(),
+                                1e9 / result[0], result[0], result[1]));
+                    }
+                    footprints.add(String.format(Locale.ROOT, "%-16s %-22s %-8s %10d %14d %12.1f",
+                            "graph.memory", impl, dist, stats.edgeCount(), stats.totalBytes(), stats.bytesPerEdge()));
+                }
+            }
+        }
+    }
+
+    /*
+     * Benchmark impl in a new JVM with this JVM's classpath and arguments,
+     * printing its operation lines as they arrive and adding its footprint
+     * lines to footprints.
+     */
+    private static void fork(String impl, Map<String, String> options, List<String> footprints)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(GraphBenchmark.class.getName());
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            command.add(option.getKey());
+            command.add(option.getKey().equals("--impl") ? impl : option.getKey().equals("--forks") ? "0" : option.getValue());
+        }
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        try (BufferedReader out = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                if (line.startsWith("graph.memory")) {
+                    footprints.add(line);
+                } else if (line.startsWith("graph.")) {
+                    System.out.println(line);
+                }
+            }
+        }
+        int status = process.waitFor();
+        if (status != 0) {
+            throw new IllegalStateException("benchmark JVM for " + impl + " exited with status " + status);
+        }
+    }
+
+    /**
+     * @return {average nanoseconds per operation, average bytes allocated per operation}
+     */
+    private static double[] measure(String op, Supplier<Graph<String>> factory, SyntheticGraph data,
+            int batchSize, int warmup, int iterations) {
+        Operation operation = OPERATIONS.get(op);
+        if (operation == null) {
+            throw new IllegalArgumentException("Unknown operation " + op);
+        }
+        boolean mutating = MUTATING.contains(op);
+        Graph<String> graph = data.loadInto(factory.get());
+        long totalNanos = 0;
+        long totalBytes = 0;
+        long totalOps = 0;
+        for (int i = 0; i < warmup + iterations; i++) {
+            if (mutating && i > 0) {
+                graph = data.loadInto(factory.get());
+            }
+            String[] batch = op.equals("remove")
+                    ? data.distinctVertices(batchSize)
+                    : data.sampleVertices(batchSize, SEED + 2 * i);
+            if (op.equals("add")) {
+                for (int j = 0; j < batch.length; j++) {
+                    batch[j] = "new-" + batch[j];
+                }
+            }
+            String[] partners = data.sampleVertices(batch.length, SEED + 2 * i + 1);
+
+            long bytesBefore = allocatedBytes();
+            long start = System.nanoTime();
+            sink += operation.run(graph, batch, partners);
+            long nanos = System.nanoTime() - start;
+            long bytes = allocatedBytes() - bytesBefore;
+            if (i >= warmup) {
+                totalNanos += nanos;
+                totalBytes += bytes;
+                totalOps += batch.length;
+            }
+        }
+        return new double[] { (double) totalNanos / totalOps, (double) totalBytes / totalOps };
+    }
+
+    private static final java.lang.management.ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /* Bytes allocated so far by this thread, or 0 if the JVM does not track it. */
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
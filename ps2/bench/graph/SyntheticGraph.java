@@ -0,0 +1,203 @@
+package graph;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A seeded, randomly generated weighted edge list, for loading identical
+ * synthetic graphs into different Graph implementations.
+ */
+public class SyntheticGraph {
+
+    /** How edge endpoints are chosen among the vertices. */
+    public enum Distribution {
+        /** every vertex is equally likely, so degrees are roughly equal */
+        UNIFORM,
+        /** vertex i is chosen with probability proportional to 1 / (i + 1), so a few hubs dominate */
+        ZIPF
+    }
+
+    /** Average out-degree of generated graphs. */
+    public static final int AVERAGE_DEGREE = 8;
+
+    private static final int MAX_WEIGHT = 10;
+
+    private final String[] labels;
+    private final int[] sources;
+    private final int[] targets;
+    private final int[] weights;
+    private final Distribution distribution;
+    private final long seed;
+
+    // Abstraction function:
+    //   Represents the edges labels[sources[i]] -> labels[targets[i]] with weight
+    //   weights[i], over the vertices in labels. Edges may repeat a vertex pair;
+    //   loading keeps the last weight.
+    // Representation invariant:
+    //   sources, targets and weights have equal length
+    //   every index in sources and targets is in [0, labels.length)
+    //   every weight is in [1, MAX_WEIGHT]
+    // Safety from rep exposure:
+    //   arrays are private and never returned.
+
+    private SyntheticGraph(String[] labels, int[] sources, int[] targets, int[] weights,
+            Distribution distribution, long seed) {
+        this.labels = labels;
+        this.sources = sources;
+        this.targets = targets;
+        this.weights = weights;
+        this.distribution = distribution;
+        this.seed = seed;
+    }
+
+    /**
+     * Generate an edge list.
+     * @param edgeCount number of edges, must be positive
+     * @param distribution how endpoints are chosen
+     * @param seed seed of the generator; equal arguments give equal graphs
+     * @return edgeCount edges over max(2, edgeCount / AVERAGE_DEGREE) vertices
+     */
+    public static SyntheticGraph generate(int edgeCount, Distribution distribution, long seed) {
+        return generate(edgeCount, distribution, seed, false);
+    }
+
+    /**
+     * Generate an edge list with no repeated vertex pair, by drawing edges
+     * until edgeCount distinct pairs have been drawn. Under ZIPF, where plain
+     * generate() repeats many pairs between hubs, this keeps the graph at the
+     * requested size.
+     * @param edgeCount number of edges, must be positive and at most the
+     *        square of the vertex count
+     * @param distribution how endpoints are chosen
+     * @param seed seed of the generator; equal arguments give equal graphs
+     * @return edgeCount distinct edges over max(2, edgeCount / AVERAGE_DEGREE) vertices
+     */
+    public static SyntheticGraph generateDistinct(int edgeCount, Distribution distribution, long seed) {
+        return generate(edgeCount, distribution, seed, true);
+    }
+
+    private static SyntheticGraph generate(int edgeCount, Distribution distribution, long seed, boolean distinct) {
+        if (edgeCount <= 0) {
+            throw new IllegalArgumentException("Edge count must be positive");
+        }
+        int vertexCount = Math.max(2, edgeCount / AVERAGE_DEGREE);
+        if (distinct && edgeCount > (long) vertexCount * vertexCount) {
+            throw new IllegalArgumentException("Too many edges for " + vertexCount + " vertices: " + edgeCount);
+        }
+        String[] labels = new String[vertexCount];
+        for (int i = 0; i < vertexCount; i++) {
+            labels[i] = "w" + i;
+        }
+        int[] sources = new int[edgeCount];
+        int[] targets = new int[edgeCount];
+        int[] weights = new int[edgeCount];
+        Set<Long> pairs = new HashSet<>();
+        VertexSampler sampler = sampler(vertexCount, distribution, seed);
+        Random random = new Random(seed + 1);
+        for (int i = 0; i < edgeCount; ) {
+            int source = sampler.next();
+            int target = sampler.next();
+            if (distinct && !pairs.add((long) source * vertexCount + target)) {
+                continue;
+            }
+            sources[i] = source;
+            targets[i] = target;
+            weights[i] = 1 + random.nextInt(MAX_WEIGHT);
+            i++;
+        }
+        return new SyntheticGraph(labels, sources, targets, weights, distribution, seed);
+    }
+
+    /**
+     * Add every vertex and edge of this edge list to a graph.
+     * @param graph graph to load into
+     * @return graph
+     */
+    public <G extends Graph<String>> G loadInto(G graph) {
+        for (String label : labels) {
+            graph.add(label);
+        }
+        for (int i = 0; i < sources.length; i++) {
+            graph.set(labels[sources[i]], labels[targets[i]], weights[i]);
+        }
+        return graph;
+    }
+
+    /**
+     * Draw vertices with the same distribution used for edge endpoints.
+     * @param count number of vertices to draw
+     * @param seed seed of the draw
+     * @return array of count vertex labels, possibly repeating
+     */
+    public String[] sampleVertices(int count, long seed) {
+        VertexSampler sampler = sampler(labels.length, distribution, seed);
+        String[] sample = new String[count];
+        for (int i = 0; i < count; i++) {
+            sample[i] = labels[sampler.next()];
+        }
+        return sample;
+    }
+
+    /**
+     * Get distinct vertices, for operations like remove that need each vertex once.
+     * @param count number of vertices, at most vertexCount()
+     * @return the first count vertex labels, in a seeded random order
+     */
+    public String[] distinctVertices(int count) {
+        String[] shuffled = labels.clone();
+        Random random = new Random(seed + 2);
+        for (int i = shuffled.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            String tmp = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = tmp;
+        }
+        String[] result = new String[Math.min(count, shuffled.length)];
+        System.arraycopy(shuffled, 0, result, 0, result.length);
+        return result;
+    }
+
+    /**
+     * @return number of vertices
+     */
+    public int vertexCount() {
+        return labels.length;
+    }
+
+    /**
+     * @return number of generated edges, counting repeated vertex pairs
+     */
+    public int edgeCount() {
+        return sources.length;
+    }
+
+    /**
+     * @return number of distinct vertex pairs among the generated edges, which
+     *         is the number of edges a graph holds after loadInto
+     */
+    public int distinctEdgeCount() {
+        Set<Long> pairs = new HashSet<>();
+        for (int i = 0; i < sources.length; i++) {
+            pairs.add((long) sources[i] * labels.length + targets[i]);
+        }
+        return pairs.size();
+    }
+
+    private interface VertexSampler {
+        int next();
+    }
+
+    private static VertexSampler sampler(int vertexCount, Distribution distribution, long seed) {
+        switch (distribution) {
+        case UNIFORM:
+            Random random = new Random(seed);
+            return () -> random.nextInt(vertexCount);
+        case ZIPF:
+            ZipfSampler zipf = new ZipfSampler(vertexCount, 1.0, seed);
+            return zipf::next;
+        default:
+            throw new AssertionError("unknown distribution " + distribution);
+        }
+    }
+}
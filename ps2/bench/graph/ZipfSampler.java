@@ -0,0 +1,84 @@
+package graph;
+
+import java.util.Random;
+
+/**
+ * Seeded sampler of Zipf-distributed integers in [0, n), where value i is drawn
+ * with probability proportional to 1 / (i + 1)^exponent.
+ * 
+ * <p>Uses rejection-inversion sampling (Hormann and Derflinger, 1996), so it
+ * needs O(1) memory even for very large n.
+ */
+public class ZipfSampler {
+
+    private final int n;
+    private final double exponent;
+    private final Random random;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double s;
+
+    /**
+     * Creates a sampler.
+     * @param n number of distinct values, must be positive
+     * @param exponent skew of the distribution, must be positive
+     * @param seed seed for the underlying random generator
+     */
+    public ZipfSampler(int n, double exponent, long seed) {
+        if (n <= 0 || exponent <= 0) {
+            throw new IllegalArgumentException("Invalid Zipf parameters: n=" + n + ", exponent=" + exponent);
+        }
+        this.n = n;
+        this.exponent = exponent;
+        this.random = new Random(seed);
+        this.hIntegralX1 = hIntegral(1.5) - 1;
+        this.hIntegralN = hIntegral(n + 0.5);
+        this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    /**
+     * @return next sample in [0, n); small values are the most frequent
+     */
+    public int next() {
+        while (true) {
+            double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+            double x = hIntegralInverse(u);
+            int k = (int) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > n) {
+                k = n;
+            }
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k - 1;
+            }
+        }
+    }
+
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return helper2((1 - exponent) * logX) * logX;
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = x * (1 - exponent);
+        if (t < -1) {
+            t = -1;
+        }
+        return Math.exp(helper1(t) * x);
+    }
+
+    /* log(1 + x) / x, accurate near 0 */
+    private static double helper1(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+    }
+
+    /* (exp(x) - 1) / x, accurate near 0 */
+    private static double helper2(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+    }
+}
@@ -0,0 +1,126 @@
+package graph.algorithms;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import graph.Graph;
+import graph.SyntheticGraph;
+
+/**
+ * Benchmarks of the graph algorithms on synthetic graphs of up to millions
+ * of edges.
+ *
+ * <p>Each graph is generated with SyntheticGraph.generateDistinct, so it has
+ * exactly --edges edges under either distribution, loaded into a Graph and
+ * snapshotted once; the snapshot time is reported separately, and every
+ * algorithm then runs on the snapshot. Warmup runs are discarded, and
+ * measured runs report the average time per run and edges processed per
+ * second. PageRank runs on one thread and, if --threads is more than one, on
+ * --threads threads, to show the speedup of splitting vertex ranges.
+ *
+ * <p>Runs offline with only the JDK, from the ps2 directory:
+ * <pre>
+ *   javac -d bin src/metrics/*.java src/graph/*.java src/graph/algorithms/*.java bench/graph/*.java bench/graph/algorithms/*.java
+ *   java -Xmx4g -cp bin graph.algorithms.GraphAlgorithmsBenchmark --dist uniform,zipf --edges 1000000
+ * </pre>
+ * Run without -ea, so checkRep() does not dominate loading.
+ */
+public class GraphAlgorithmsBenchmark {
+
+    private static final long SEED = 42;
+
+    /* Consumes benchmark results so the JIT cannot discard the measured work. */
+    private static long sink;
+
+    /**
+     * Run the benchmarks.
+     *
+     * @param args options, each followed by a value: --dist (comma-separated
+     *        uniform, zipf), --edges (comma-separated sizes), --warmup and
+     *        --iterations (run counts), --threads (PageRank parallelism)
+     */
+    public static void main(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("--dist", "uniform,zipf");
+        options.put("--edges", "1000000");
+        options.put("--warmup", "2");
+        options.put("--iterations", "5");
+        options.put("--threads", Integer.toString(Runtime.getRuntime().availableProcessors()));
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!options.containsKey(args[i])) {
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+            options.put(args[i], args[i + 1]);
+        }
+        int warmup = Integer.parseInt(options.get("--warmup"));
+        int iterations = Integer.parseInt(options.get("--iterations"));
+        int threads = Integer.parseInt(options.get("--threads"));
+
+        System.out.printf(Locale.ROOT, "%-22s %-8s %10s %10s %12s %14s%n",
+                "Benchmark", "Dist", "Vertices", "Edges", "ms/run", "edges/s");
+        for (String dist : options.get("--dist").split(",")) {
+            for (String edges : options.get("--edges").split(",")) {
+                SyntheticGraph data = SyntheticGraph.generateDistinct(Integer.parseInt(edges),
+                        SyntheticGraph.Distribution.valueOf(dist.toUpperCase(Locale.ROOT)), SEED);
+                Graph<String> graph = data.loadInto(new Graph<>());
+                CompactGraph<String> compact = CompactGraph.of(graph);
+                int n = compact.vertexCount();
+                int[] sources = new int[warmup + iterations];
+                String[] sampled = data.sampleVertices(sources.length, SEED + 1);
+                for (int i = 0; i < sources.length; i++) {
+                    sources[i] = compact.indexOf(sampled[i]);
+                }
+                int[] run = { 0 };
+
+                report("algorithms.snapshot", dist, compact, warmup, iterations,
+                        () -> CompactGraph.of(graph).edgeCount());
+
+                int[] distances = new int[n];
+                int[] order = new int[n];
+                report("algorithms.bfs", dist, compact, warmup, iterations,
+                        () -> BreadthFirstSearch.search(compact, sources[run[0]++ % sources.length], distances, order));
+
+                long[] lengths = new long[n];
+                int[] predecessors = new int[n];
+                IndexedMinHeap heap = new IndexedMinHeap(n);
+                report("algorithms.dijkstra", dist, compact, warmup, iterations,
+                        () -> Dijkstra.search(compact, sources[run[0]++ % sources.length], lengths, predecessors, heap));
+
+                int[] components = new int[n];
+                report("algorithms.scc", dist, compact, warmup, iterations,
+                        () -> StronglyConnectedComponents.componentIds(compact, components));
+
+                // a fixed iteration count, so thread counts do the same work
+                report("algorithms.pagerank-1", dist, compact, warmup, iterations,
+                        () -> (long) (1e6 * PageRank.iterate(compact, PageRank.DEFAULT_DAMPING, 0, 20, 1)[0]));
+                if (threads > 1) {
+                    report("algorithms.pagerank-" + threads, dist, compact, warmup, iterations,
+                            () -> (long) (1e6 * PageRank.iterate(compact, PageRank.DEFAULT_DAMPING, 0, 20, threads)[0]));
+                }
+            }
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    /* Time warmup + iterations runs of algorithm and print the average of the measured ones. */
+    private static void report(String name, String dist, CompactGraph<?> graph, int warmup, int iterations,
+            LongSupplier algorithm) {
+        long totalNanos = 0;
+        for (int i = 0; i < warmup + iterations; i++) {
+            long start = System.nanoTime();
+            sink += algorithm.getAsLong();
+            long nanos = System.nanoTime() - start;
+            if (i >= warmup) {
+                totalNanos += nanos;
+            }
+        }
+        double nanosPerRun = (double) totalNanos / iterations;
+        System.out.printf(Locale.ROOT, "%-22s %-8s %10d %10d %12.2f %14.0f%n",
+                name, dist, graph.vertexCount(), graph.edgeCount(),
+                nanosPerRun / 1e6, graph.edgeCount() / (nanosPerRun / 1e9));
+    }
+}
@@ -0,0 +1,321 @@
+package poet;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import graph.Graph;
+import graph.MemoryStats;
+
+/**
+ * End-to-end benchmark of GraphPoet: corpus load time split into tokenizing
+ * and graph building, peak heap of each phase, and poem() latency percentiles
+ * over a mix of prompts. The peak heap is the largest heap-wide usage seen
+ * by sampling every few milliseconds while the phase runs, so it can miss
+ * a shorter spike.
+ *
+ * <p>Each run appends one JSON object per line to the results file, so runs
+ * on different corpora or code versions can be compared with standard tools.
+ * <pre>
+ *   java -cp bin poet.ZipfCorpusGenerator corpus-100MB.txt 100MB
+ *   java -cp bin poet.GraphPoetBenchmark --corpus corpus-100MB.txt --out results.jsonl
+ * </pre>
+ * Corpora beyond a few GB do not fit an exact affinity graph in memory; pass
+ * --approximate sketchBytes,maxEdges to load them with bounded memory, in
+ * which case loading is timed as a single phase.
+ */
+public class GraphPoetBenchmark {
+
+    private static final long SEED = 42;
+
+    /* Most bytes of an approximate-mode corpus read to draw prompts from. */
+    private static final int SAMPLE_BYTES = 1 << 20;
+
+    private static final Pattern WORD = Pattern.compile("\\S+");
+
+    private static final String USAGE = "usage: GraphPoetBenchmark --corpus <file> [--out <file>] [--prompts n]"
+            + " [--warmup n] [--approximate sketchBytes,maxEdges]";
+
+    /* Consumes benchmark results so the JIT cannot discard the measured work. */
+    private static long sink;
+
+    /**
+     * Run the benchmark.
+     * @param args --corpus file (required), --out results file (default
+     *        poet-bench.jsonl), --prompts measured poems (default 10000),
+     *        --warmup unmeasured poems (default 2000), --approximate sketchBytes,maxEdges
+     * @throws Exception if the corpus cannot be read or results cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("--corpus", null);
+        options.put("--out", "poet-bench.jsonl");
+        options.put("--prompts", "10000");
+        options.put("--warmup", "2000");
+        options.put("--approximate", null);
+        if (args.length % 2 != 0) {
+            usage("every option needs a value");
+        }
+        for (int i = 0; i < args.length; i += 2) {
+            if (!options.containsKey(args[i])) {
+                usage("unknown option " + args[i]);
+            }
+            options.put(args[i], args[i + 1]);
+        }
+        if (options.get("--corpus") == null) {
+            usage("--corpus is required");
+        }
+        int measured = parseCount(options, "--prompts", 1);
+        int warmup = parseCount(options, "--warmup", 0);
+        long sketchBytes = 0;
+        int maxEdges = 0;
+        if (options.get("--approximate") != null) {
+            String[] budget = options.get("--approximate").split(",");
+            try {
+                sketchBytes = Long.parseLong(budget[0].trim());
+                maxEdges = budget.length == 2 ? Integer.parseInt(budget[1].trim()) : 0;
+            } catch (NumberFormatException e) {
+                maxEdges = 0;
+            }
+            if (sketchBytes <= 0 || maxEdges <= 0) {
+                usage("--approximate needs two positive numbers, sketchBytes,maxEdges");
+            }
+        }
+        File corpus = new File(options.get("--corpus"));
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("timestamp", System.currentTimeMillis());
+        results.put("corpus", corpus.getPath());
+        results.put("corpusBytes", corpus.length());
+
+        GraphPoet poet;
+        List<String> sampleWords;
+        if (options.get("--approximate") != null) {
+            long sketch = sketchBytes;
+            int edges = maxEdges;
+            results.put("mode", "approximate");
+            Phase<GraphPoet> load = Phase.run(() -> new GraphPoet(corpus, sketch, edges));
+            load.report(results, "load");
+            poet = load.value;
+            results.put("errorBound", poet.getApproximationErrorBound());
+            sampleWords = sampleOf(corpus);
+        } else {
+            results.put("mode", "exact");
+            Phase<List<String>> tokenize = Phase.run(() -> GraphPoet.extractWordsFromFile(corpus));
+            tokenize.report(results, "tokenize");
+            results.put("words", tokenize.value.size());
+            results.put("tokenizeWordsPerSec", Math.round(tokenize.value.size() / (tokenize.nanos / 1e9)));
+            Phase<Graph<String>> build = Phase.run(() -> GraphPoet.generateAffinityGraph(tokenize.value));
+            build.report(results, "build");
+            poet = new GraphPoet(tokenize.value, build.value);
+            sampleWords = tokenize.value;
+        }
+
+        if (sampleWords.isEmpty()) {
+            usage("corpus " + corpus + " has no words to draw prompts from");
+        }
+
+        MemoryStats memory = poet.memoryStats();
+        results.put("vertices", memory.vertexCount());
+        results.put("edges", memory.edgeCount());
+        results.put("graphBytes", memory.totalBytes() - memory.corpusBytes());
+        results.put("corpusWordBytes", memory.corpusBytes());
+        results.put("bytesPerEdge", memory.bytesPerEdge());
+
+        String[] prompts = prompts(sampleWords, warmup + measured);
+        for (int i = 0; i < warmup; i++) {
+            sink += poet.poem(prompts[i]).length();
+        }
+        long[] latencies = new long[prompts.length - warmup];
+        for (int i = warmup; i < prompts.length; i++) {
+            long start = System.nanoTime();
+            sink += poet.poem(prompts[i]).length();
+            latencies[i - warmup] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        results.put("poems", latencies.length);
+        results.put("poemP50Micros", percentile(latencies, 0.50) / 1e3);
+        results.put("poemP99Micros", percentile(latencies, 0.99) / 1e3);
+        results.put("poemP999Micros", percentile(latencies, 0.999) / 1e3);
+        results.put("poemMaxMicros", latencies[latencies.length - 1] / 1e3);
+
+        String json = toJson(results);
+        try (PrintWriter out = new PrintWriter(new FileWriter(options.get("--out"), true))) {
+            out.println(json);
+        }
+        System.out.println(json);
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    /*
+     * Prompt mix: half are words two apart in the corpus, so every pair has a
+     * bridge; 40% are words from random corpus positions, so frequent words
+     * dominate as in real input; 10% contain a word missing from the corpus.
+     */
+    private static String[] prompts(List<String> words, int count) {
+        Random random = new Random(SEED);
+        String[] prompts = new String[count];
+        for (int i = 0; i < count; i++) {
+            int length = 3 + random.nextInt(10);
+            StringBuilder prompt = new StringBuilder();
+            int kind = random.nextInt(10);
+            int start = random.nextInt(Math.max(1, words.size() - 2 * length));
+            for (int j = 0; j < length; j++) {
+                String word;
+                if (kind < 5) {
+                    word = words.get(Math.min(words.size() - 1, start + 2 * j));
+                } else if (kind < 9 || j != length / 2) {
+                    word = words.get(random.nextInt(words.size()));
+                } else {
+                    word = "zzunknown" + i;
+                }
+                prompt.append(j == 0 ? "" : " ").append(word);
+            }
+            prompts[i] = prompt.toString();
+        }
+        return prompts;
+    }
+
+    /* Print a usage error and exit with status 2. */
+    private static void usage(String problem) {
+        System.err.println("GraphPoetBenchmark: " + problem);
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+
+    /* The value of a count option, which must be an integer of at least min. */
+    private static int parseCount(Map<String, String> options, String name, int min) {
+        try {
+            int count = Integer.parseInt(options.get(name).trim());
+            if (count >= min) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        usage(name + " must be an integer of at least " + min + ", not " + options.get(name));
+        throw new AssertionError("usage() exits");
+    }
+
+    /*
+     * The lowercase words of a corpus prefix small enough to tokenize in
+     * memory, for drawing prompts. A word cut off by the end of the prefix is
+     * dropped, but the last word of a corpus that fits is kept.
+     */
+    private static List<String> sampleOf(File corpus) throws IOException {
+        byte[] buffer = new byte[SAMPLE_BYTES];
+        int length = 0;
+        boolean whole;
+        try (InputStream in = new FileInputStream(corpus)) {
+            int read;
+            while (length < buffer.length && (read = in.read(buffer, length, buffer.length - length)) > 0) {
+                length += read;
+            }
+            whole = in.read() < 0;
+        }
+        if (!whole) {
+            while (length > 0 && !Character.isWhitespace(buffer[length - 1])) {
+                length--;
+            }
+        }
+        List<String> words = new ArrayList<>();
+        Matcher word = WORD.matcher(new String(buffer, 0, length, StandardCharsets.UTF_8));
+        while (word.find()) {
+            words.add(word.group().toLowerCase());
+        }
+        return words;
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static String toJson(Map<String, Object> fields) {
+        StringBuilder json = new StringBuilder("{");
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            if (json.length() > 1) {
+                json.append(", ");
+            }
+            json.append('"').append(field.getKey()).append("\": ");
+            Object value = field.getValue();
+            if (value instanceof Number) {
+                json.append(value instanceof Double
+                        ? String.format(Locale.ROOT, "%.3f", (Double) value) : value);
+            } else {
+                json.append('"').append(String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+            }
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * A timed load phase, with the peak heap used while it ran.
+     */
+    private static class Phase<T> {
+        /* Interval between heap usage samples. */
+        private static final long SAMPLE_MILLIS = 5;
+
+        final T value;
+        final long nanos;
+        final long peakHeapBytes;
+
+        private Phase(T value, long nanos, long peakHeapBytes) {
+            this.value = value;
+            this.nanos = nanos;
+            this.peakHeapBytes = peakHeapBytes;
+        }
+
+        static <T> Phase<T> run(Callable<T> phase) throws Exception {
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            System.gc();
+            long[] peak = { memory.getHeapMemoryUsage().getUsed() };
+            Thread sampler = new Thread(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    peak[0] = Math.max(peak[0], memory.getHeapMemoryUsage().getUsed());
+                    try {
+                        Thread.sleep(SAMPLE_MILLIS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }, "heap-sampler");
+            sampler.setDaemon(true);
+            sampler.start();
+            long start = System.nanoTime();
+            T value;
+            try {
+                value = phase.call();
+            } finally {
+                sampler.interrupt();
+                sampler.join();
+            }
+            long nanos = System.nanoTime() - start;
+            // join() orders the sampler's writes before this read
+            long used = Math.max(peak[0], memory.getHeapMemoryUsage().getUsed());
+            return new Phase<>(value, nanos, used);
+        }
+
+        void report(Map<String, Object> results, String name) {
+            results.put(name + "Millis", nanos / 1e6);
+            results.put(name + "PeakHeapBytes", peakHeapBytes);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package poet;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+
+import graph.ZipfSampler;
+
+/**
+ * Seeded generator of synthetic corpora whose word frequencies follow a Zipf
+ * distribution, like natural-language text.
+ *
+ * <p>Text is streamed to disk, so corpora far larger than the heap (up to
+ * tens of gigabytes) can be generated. Equal arguments give identical files.
+ * <pre>
+ *   java -cp bin poet.ZipfCorpusGenerator corpus-100MB.txt 100MB [seed] [vocabulary] [exponent]
+ * </pre>
+ */
+public class ZipfCorpusGenerator {
+
+    private static final String CONSONANTS = "bcdfghjklmnprstvwxyz";
+    private static final String VOWELS = "aeiou";
+    private static final int SYLLABLES = CONSONANTS.length() * VOWELS.length();
+    private static final int WORDS_PER_LINE = 12;
+
+    private final String[] vocabulary;
+    private final ZipfSampler sampler;
+
+    /**
+     * Creates a generator.
+     * @param vocabularySize number of distinct words, must be positive
+     * @param exponent Zipf skew; about 1.0 for English text
+     * @param seed seed of the word sequence
+     */
+    public ZipfCorpusGenerator(int vocabularySize, double exponent, long seed) {
+        this.vocabulary = new String[vocabularySize];
+        for (int rank = 0; rank < vocabularySize; rank++) {
+            vocabulary[rank] = word(rank);
+        }
+        this.sampler = new ZipfSampler(vocabularySize, exponent, seed);
+    }
+
+    /**
+     * @param rank frequency rank of a word, nonnegative
+     * @return a distinct pronounceable word for rank; frequent ranks get short words
+     */
+    static String word(int rank) {
+        StringBuilder word = new StringBuilder();
+        do {
+            int syllable = rank % SYLLABLES;
+            word.insert(0, VOWELS.charAt(syllable % VOWELS.length()))
+                .insert(0, CONSONANTS.charAt(syllable / VOWELS.length()));
+            rank /= SYLLABLES;
+        } while (rank > 0);
+        return word.toString();
+    }
+
+    /**
+     * Write lines of words until at least the requested number of bytes is written.
+     * @param out destination of the corpus text
+     * @param bytes target size of the corpus
+     * @return number of words written
+     * @throws IOException if out cannot be written
+     */
+    public long write(Writer out, long bytes) throws IOException {
+        long written = 0;
+        long words = 0;
+        while (written < bytes) {
+            for (int i = 0; i < WORDS_PER_LINE; i++) {
+                String word = vocabulary[sampler.next()];
+                if (i > 0) {
+                    out.write(' ');
+                    written++;
+                }
+                out.write(word);
+                written += word.length();
+                words++;
+            }
+            out.write('\n');
+            written++;
+        }
+        return words;
+    }
+
+    /**
+     * @param size a byte count with optional suffix KB, MB or GB, like "10GB"
+     * @return number of bytes
+     */
+    static long parseSize(String size) {
+        String upper = size.trim().toUpperCase(Locale.ROOT);
+        long unit = 1;
+        if (upper.endsWith("KB")) {
+            unit = 1L << 10;
+        } else if (upper.endsWith("MB")) {
+            unit = 1L << 20;
+        } else if (upper.endsWith("GB")) {
+            unit = 1L << 30;
+        }
+        String digits = unit == 1 ? upper : upper.substring(0, upper.length() - 2);
+        return Long.parseLong(digits.trim()) * unit;
+    }
+
+    /**
+     * Generate a corpus file.
+     * @param args output file, size (1MB to 10GB), and optionally seed,
+     *        vocabulary size and Zipf exponent
+     * @throws IOException if the output file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: ZipfCorpusGenerator <output> <size> [seed] [vocabulary] [exponent]");
+            System.exit(2);
+        }
+        File output = new File(args[0]);
+        long bytes = parseSize(args[1]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        int vocabulary = args.length > 3 ? Integer.parseInt(args[3]) : 50_000;
+        double exponent = args.length > 4 ? Double.parseDouble(args[4]) : 1.0;
+
+        ZipfCorpusGenerator generator = new ZipfCorpusGenerator(vocabulary, exponent, seed);
+        long start = System.nanoTime();
+        long words;
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(output.toPath()), StandardCharsets.US_ASCII), 1 << 16)) {
+            words = generator.write(out, bytes);
+        }
+        System.out.printf(Locale.ROOT, "wrote %d words (%d bytes) to %s in %.1f s%n",
+                words, output.length(), output, (System.nanoTime() - start) / 1e9);
+    }
+}
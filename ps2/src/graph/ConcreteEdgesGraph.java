@@ -1,6 +1,8 @@
 package graph;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
 
 /**
  * An implementation of a directed weighted graph.
@@ -8,10 +10,14 @@ import java.util.*;
  * <p>The graph is represented as a set of vertices and edges. Each edge connects
  * two vertices and has an associated weight.
  */
-public class ConcreteEdgesGraph implements Graph<String> {
+public class ConcreteEdgesGraph extends Graph<String> {
     
-    private final Set<String> vertices = new HashSet<>();
-    private final List<Edge> edges = new ArrayList<>();
+    private Set<String> vertices = new HashSet<>();
+    private final ArrayList<Edge> edges = new ArrayList<>();
+    private final SortedAdjacencyIndex<String> sortedTargets = new SortedAdjacencyIndex<>();
+    private final SortedAdjacencyIndex<String> sortedSources = new SortedAdjacencyIndex<>();
+    private long repChecks;
+    private long labelBytes;
     
     // Abstraction function:
     //   The vertices are represented by a set of strings, and the edges are represented
@@ -21,10 +27,14 @@ public class ConcreteEdgesGraph implements Graph<String> {
     //   vertices != null && edges != null
     //   Each edge connects vertices that exist in the set of vertices
     //   No duplicate edges between the same pair of vertices.
+    //   sortedTargets and sortedSources only cache adjacencies that match edges.
+    //   labelBytes is the sum of Footprint.label over vertices.
     //
     // Safety from rep exposure:
     //   vertices and edges are private, and their references are not exposed to the outside.
     //   Methods return copies or immutable views to ensure that the representation cannot be modified.
+    //   vertices() is an unmodifiable live view; sources() and targets() are copies, because
+    //   edges are not indexed by vertex, so the forEach visitors are the allocation-free path.
 
     /**
      * Creates a new empty graph.
@@ -34,34 +44,84 @@ public class ConcreteEdgesGraph implements Graph<String> {
     }
 
     /**
-     * Checks that the representation invariant holds.
+     * Checks the whole representation invariant, when the validation level
+     * calls for it on this check. Takes O(E) time when it runs.
      */
     private void checkRep() {
+        if (!Validation.level().checksAll(++repChecks)) {
+            return;
+        }
         assert vertices != null : "vertices cannot be null";
         assert edges != null : "edges cannot be null";
         
-        // Ensure that all edges have valid source and target vertices
+        // Ensure that all edges have valid source and target vertices,
+        // and there are no duplicate edges between the same pair of vertices
+        Map<String, Set<String>> seenEdges = new HashMap<>();
         for (Edge edge : edges) {
             assert vertices.contains(edge.getSource()) : "source vertex not in set of vertices";
             assert vertices.contains(edge.getTarget()) : "target vertex not in set of vertices";
+            assert seenEdges.computeIfAbsent(edge.getSource(), source -> new HashSet<>()).add(edge.getTarget())
+                    : "duplicate edge detected between " + edge.getSource() + " and " + edge.getTarget();
+        }
+        long labels = 0;
+        for (String vertex : vertices) {
+            labels += Footprint.label(vertex);
+        }
+        assert labels == labelBytes : "stale label bytes";
+    }
+
+    /**
+     * Adds a vertex, keeping labelBytes up to date.
+     * @return true iff the vertex was not already present
+     */
+    private boolean addVertex(String vertex) {
+        if (!vertices.add(vertex)) {
+            return false;
         }
+        labelBytes += Footprint.label(vertex);
+        return true;
+    }
 
-        // Ensure there are no duplicate edges between the same pair of vertices
-        Set<String> seenEdges = new HashSet<>();
+    /**
+     * Checks the part of the representation invariant about a vertex an
+     * operation added, in O(1) time, unless validation is off.
+     */
+    private void checkVertex(String vertex) {
+        if (Validation.level().checksTouched()) {
+            assert vertices.contains(vertex) : "added vertex missing: " + vertex;
+            assert labelBytes >= 0 : "negative label bytes";
+        }
+    }
+
+    /**
+     * Checks the part of the representation invariant about the edges from
+     * source to targets an operation touched: both ends are vertices, the
+     * weight is positive, and no pair has two edges. Takes one O(E) pass, like
+     * the operations that call it, unless validation is off.
+     */
+    private void checkEdges(String source, Set<String> targets) {
+        if (!Validation.level().checksTouched()) {
+            return;
+        }
+        assert vertices.contains(source) : "source vertex not in set of vertices";
+        Set<String> seen = new HashSet<>();
         for (Edge edge : edges) {
-            String edgePair = edge.getSource() + "->" + edge.getTarget();
-            assert !seenEdges.contains(edgePair) : "duplicate edge detected between " + edge.getSource() + " and " + edge.getTarget();
-            seenEdges.add(edgePair);
+            if (edge.getSource().equals(source) && targets.contains(edge.getTarget())) {
+                assert vertices.contains(edge.getTarget()) : "target vertex not in set of vertices";
+                assert edge.getWeight() > 0 : "non-positive weight to " + edge.getTarget();
+                assert seen.add(edge.getTarget())
+                        : "duplicate edge detected between " + source + " and " + edge.getTarget();
+            }
         }
     }
 
     @Override
     public boolean add(String vertex) {
         checkRep();
-        if (vertices.contains(vertex)) {
+        if (!addVertex(vertex)) {
             return false;
         }
-        vertices.add(vertex);
+        checkVertex(vertex);
         checkRep();
         return true;
     }
@@ -72,21 +132,66 @@ public class ConcreteEdgesGraph implements Graph<String> {
         if (weight < 0) {
             throw new IllegalArgumentException("Edge weight cannot be negative");
         }
-        Edge edge = new Edge(source, target, weight);
-        for (Edge e : edges) {
-            if (e.equals(edge)) {
+        addVertex(source);
+        addVertex(target);
+        sortedTargets.invalidate(source);
+        sortedSources.invalidate(target);
+        // an edge is identified by its endpoints, whatever its weight
+        for (int i = 0; i < edges.size(); i++) {
+            Edge e = edges.get(i);
+            if (e.connects(source, target)) {
                 int oldWeight = e.getWeight();
-                edges.remove(e);
-                edges.add(edge);
+                if (weight == 0) {
+                    edges.remove(i);
+                } else {
+                    edges.set(i, new Edge(source, target, weight));
+                }
+                checkEdges(source, Collections.singleton(target));
                 checkRep();
                 return oldWeight;
             }
         }
-        edges.add(edge);
+        if (weight > 0) {
+            edges.add(new Edge(source, target, weight));
+        }
+        checkEdges(source, Collections.singleton(target));
         checkRep();
         return 0;
     }
 
+    /**
+     * Same as Graph.setAll. Costs O(targets) when source is not yet a vertex,
+     * and otherwise one O(E) pass to drop the edges being replaced, since edges
+     * are not indexed by source; reading an edge list of S sources therefore
+     * costs O(S * E) in the worst case.
+     */
+    @Override
+    public void setAll(String source, Map<String, Integer> targets) {
+        checkRep();
+        for (Integer weight : targets.values()) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("Edge weight cannot be negative");
+            }
+        }
+        boolean newSource = addVertex(source);
+        for (String target : targets.keySet()) {
+            addVertex(target);
+        }
+        if (!newSource) {
+            // one pass drops the old edges that are being replaced or removed
+            edges.removeIf(edge -> edge.getSource().equals(source) && targets.containsKey(edge.getTarget()));
+        }
+        sortedTargets.invalidate(source);
+        for (Map.Entry<String, Integer> target : targets.entrySet()) {
+            sortedSources.invalidate(target.getKey());
+            if (target.getValue() > 0) {
+                edges.add(new Edge(source, target.getKey(), target.getValue()));
+            }
+        }
+        checkEdges(source, targets.keySet());
+        checkRep();
+    }
+
     @Override
     public boolean remove(String vertex) {
         checkRep();
@@ -94,7 +199,10 @@ public class ConcreteEdgesGraph implements Graph<String> {
             return false;
         }
         vertices.remove(vertex);
+        labelBytes -= Footprint.label(vertex);
         edges.removeIf(edge -> edge.getSource().equals(vertex) || edge.getTarget().equals(vertex));
+        sortedTargets.clear();
+        sortedSources.clear();
         checkRep();
         return true;
     }
@@ -130,97 +238,127 @@ public class ConcreteEdgesGraph implements Graph<String> {
     }
 
     @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("Vertices: ").append(vertices).append("\n");
-        sb.append("Edges: ");
+    public int weight(String source, String target) {
+        checkRep();
         for (Edge edge : edges) {
-            sb.append(edge.toString()).append(" ");
+            if (edge.connects(source, target)) {
+                return edge.getWeight();
+            }
         }
-        return sb.toString();
+        return 0;
     }
 
-	@Override
-	public void addEdge(String source, String target, int weight) {
-		// TODO Auto-generated method stub
-		
-	}
-}
+    @Override
+    public void forEachVertex(Consumer<? super String> action) {
+        checkRep();
+        for (String vertex : vertices) {
+            action.accept(vertex);
+        }
+    }
 
-/**
- * Represents an edge in a weighted directed graph.
- * An edge connects a source vertex to a target vertex with a specified weight.
- */
-class Edge {
-    
-    private final String source;
-    private final String target;
-    private final int weight;
-    
-    // Abstraction function:
-    //   An Edge connects a source vertex to a target vertex with a specific weight.
-    // Representation invariant:
-    //   source != null && target != null
-    //   weight >= 0
-    // Safety from rep exposure:
-    //   All fields are final and private, ensuring immutability.
+    @Override
+    public void forEachTarget(String source, ObjIntConsumer<? super String> action) {
+        checkRep();
+        for (Edge edge : edges) {
+            if (edge.getSource().equals(source)) {
+                action.accept(edge.getTarget(), edge.getWeight());
+            }
+        }
+    }
 
-    /**
-     * Creates a new Edge.
-     * @param source the source vertex
-     * @param target the target vertex
-     * @param weight the weight of the edge
-     */
-    public Edge(String source, String target, int weight) {
-        if (source == null || target == null || weight < 0) {
-            throw new IllegalArgumentException("Invalid edge parameters");
+    @Override
+    public void forEachSource(String target, ObjIntConsumer<? super String> action) {
+        checkRep();
+        for (Edge edge : edges) {
+            if (edge.getTarget().equals(target)) {
+                action.accept(edge.getSource(), edge.getWeight());
+            }
         }
-        this.source = source;
-        this.target = target;
-        this.weight = weight;
     }
 
-    /**
-     * Gets the source vertex of the edge.
-     * @return the source vertex
-     */
-    public String getSource() {
-        return source;
+    @Override
+    public void forEachEdge(EdgeConsumer<? super String> action) {
+        checkRep();
+        for (Edge edge : edges) {
+            action.accept(edge.getSource(), edge.getTarget(), edge.getWeight());
+        }
     }
 
-    /**
-     * Gets the target vertex of the edge.
-     * @return the target vertex
-     */
-    public String getTarget() {
-        return target;
+    @Override
+    public Map<String, Integer> topTargets(String source, int k) {
+        checkRep();
+        return sortedTargets.top(source, k, this::targets);
     }
 
-    /**
-     * Gets the weight of the edge.
-     * @return the weight of the edge
-     */
-    public int getWeight() {
-        return weight;
+    @Override
+    public Map<String, Integer> topSources(String target, int k) {
+        checkRep();
+        return sortedSources.top(target, k, this::sources);
+    }
+
+    @Override
+    public MemoryStats memoryStats() {
+        checkRep();
+        long adjacencyBytes = Footprint.HASH_MAP + (long) vertices.size() * (Footprint.HASH_NODE + Footprint.HASH_SLOT)
+                + Footprint.ARRAY_LIST + Footprint.align(Footprint.ARRAY_HEADER + (long) edges.size() * Footprint.REFERENCE)
+                + (long) edges.size() * (Footprint.EDGE_OBJECT - Integer.BYTES);
+        long weightBytes = (long) edges.size() * Integer.BYTES;
+        return new MemoryStats(vertices.size(), edges.size(), labelBytes, adjacencyBytes, weightBytes, 0);
     }
 
     @Override
     public String toString() {
-        return source + " -> " + target + " [weight=" + weight + "]";
+        StringBuilder sb = new StringBuilder();
+        sb.append("Vertices: ").append(vertices).append("\n");
+        sb.append("Edges: ");
+        for (Edge edge : edges) {
+            sb.append(edge.toString()).append(" ");
+        }
+        return sb.toString();
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (this == obj) return true;
-        if (obj == null || getClass() != obj.getClass()) return false;
-        Edge edge = (Edge) obj;
-        return weight == edge.weight &&
-               source.equals(edge.source) &&
-               target.equals(edge.target);
+    public PruneResult prune(int minVertexDegree, int minEdgeWeight) {
+        checkRep();
+        long bytesBefore = memoryStats().totalBytes();
+        int edgeCount = edges.size();
+        edges.removeIf(edge -> edge.getWeight() < minEdgeWeight);
+
+        Map<String, Integer> degrees = new HashMap<>();
+        for (String vertex : vertices) {
+            degrees.put(vertex, 0);
+        }
+        for (Edge edge : edges) {
+            degrees.merge(edge.getSource(), 1, Integer::sum);
+            degrees.merge(edge.getTarget(), 1, Integer::sum);
+        }
+        Set<String> doomed = new HashSet<>();
+        for (Map.Entry<String, Integer> degree : degrees.entrySet()) {
+            if (degree.getValue() < minVertexDegree) {
+                doomed.add(degree.getKey());
+            }
+        }
+        if (!doomed.isEmpty()) {
+            vertices.removeAll(doomed);
+            for (String vertex : doomed) {
+                labelBytes -= Footprint.label(vertex);
+            }
+            edges.removeIf(edge -> doomed.contains(edge.getSource()) || doomed.contains(edge.getTarget()));
+        }
+        int edgesRemoved = edgeCount - edges.size();
+        compact();
+        sortedTargets.clear();
+        sortedSources.clear();
+
+        return new PruneResult(doomed.size(), edgesRemoved, bytesBefore - memoryStats().totalBytes());
     }
 
     @Override
-    public int hashCode() {
-        return Objects.hash(source, target, weight);
+    public void compact() {
+        checkRep();
+        edges.trimToSize();
+        vertices = new HashSet<>(vertices);
+        checkRep();
     }
+
 }
@@ -1,15 +1,27 @@
 package graph;
 
+import java.util.AbstractSet;
 import java.util.ArrayList;
-import java.util.List;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Predicate;
 
-public class ConcreteVerticesGraph implements Graph<String> {
+public class ConcreteVerticesGraph extends Graph<String> {
     
-    private final List<Vertex> vertices = new ArrayList<>();
+    private final ArrayList<Vertex> vertices = new ArrayList<>();
+    private final SortedAdjacencyIndex<String> sortedTargets = new SortedAdjacencyIndex<>();
+    private final SortedAdjacencyIndex<String> sortedSources = new SortedAdjacencyIndex<>();
+    private long repChecks;
+    // running totals behind memoryStats(), kept up to date by every mutator
+    private long edgeCount;
+    private long labelBytes;
+    private long weightBytes;
     
     @Override
     public boolean add(String vertex) {
@@ -21,7 +33,9 @@ public class ConcreteVerticesGraph implements Graph<String> {
                 return false; // Vertex already exists
             }
         }
-        vertices.add(new Vertex(vertex));
+        Vertex added = addVertex(vertex);
+        checkEdges(added, Set.of(vertex));
+        checkRep();
         return true;
     }
     
@@ -34,19 +48,24 @@ public class ConcreteVerticesGraph implements Graph<String> {
             throw new IllegalArgumentException("Edge weight cannot be negative");
         }
 
-        // Check if source and target vertices exist
+        // Add the source and target vertices if they do not exist yet
         Vertex srcVertex = getVertexByLabel(source);
-        Vertex tgtVertex = getVertexByLabel(target);
-        
         if (srcVertex == null) {
-            throw new IllegalArgumentException("Source vertex does not exist: " + source);
+            srcVertex = addVertex(source);
         }
+        Vertex tgtVertex = getVertexByLabel(target);
         if (tgtVertex == null) {
-            throw new IllegalArgumentException("Target vertex does not exist: " + target);
+            tgtVertex = addVertex(target);
         }
         
         // Add the edge from source to target
-        return srcVertex.addEdge(tgtVertex, weight);
+        sortedTargets.invalidate(source);
+        sortedSources.invalidate(target);
+        int previous = srcVertex.addEdge(tgtVertex, weight);
+        countEdge(previous, weight);
+        checkEdges(srcVertex, Set.of(target));
+        checkRep();
+        return previous;
     }
 
     @Override
@@ -57,19 +76,50 @@ public class ConcreteVerticesGraph implements Graph<String> {
         }
 
         vertices.remove(vertexToRemove);
+        labelBytes -= Footprint.label(vertex);
+        for (int weight : vertexToRemove.edges.values()) {
+            countEdge(weight, 0);
+        }
         // Remove all edges pointing to this vertex (incoming edges)
         for (Vertex v : vertices) {
-            v.removeEdgeTo(vertex);
+            countEdge(v.removeEdgeTo(vertex), 0);
         }
+        sortedTargets.clear();
+        sortedSources.clear();
+        checkRep();
         return true;
     }
 
+    // vertices() and targets() are unmodifiable live views over the vertex list
+    // and each Vertex's edge map; sources() is a copy, since incoming edges are
+    // spread across all vertices.
+    private final Set<String> vertexLabels = new AbstractSet<String>() {
+        @Override
+        public Iterator<String> iterator() {
+            Iterator<Vertex> it = vertices.iterator();
+            return new Iterator<String>() {
+                @Override public boolean hasNext() {
+                    return it.hasNext();
+                }
+                @Override public String next() {
+                    return it.next().label;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return vertices.size();
+        }
+
+        @Override
+        public boolean contains(Object label) {
+            return label instanceof String && getVertexByLabel((String) label) != null;
+        }
+    };
+
     @Override
     public Set<String> vertices() {
-        Set<String> vertexLabels = new HashSet<>();
-        for (Vertex vertex : vertices) {
-            vertexLabels.add(vertex.label);
-        }
         return vertexLabels;
     }
 
@@ -87,12 +137,71 @@ public class ConcreteVerticesGraph implements Graph<String> {
 
     @Override
     public Map<String, Integer> targets(String source) {
-        Map<String, Integer> result = new HashMap<>();
         Vertex srcVertex = getVertexByLabel(source);
-        if (srcVertex != null) {
-            result = srcVertex.getEdges();
+        return srcVertex == null ? Collections.emptyMap() : srcVertex.edgesView();
+    }
+
+    @Override
+    public int weight(String source, String target) {
+        Vertex srcVertex = getVertexByLabel(source);
+        Integer weight = srcVertex == null ? null : srcVertex.getEdgeWeightTo(target);
+        return weight == null ? 0 : weight;
+    }
+
+    @Override
+    public void forEachVertex(Consumer<? super String> action) {
+        for (Vertex vertex : vertices) {
+            action.accept(vertex.label);
+        }
+    }
+
+    @Override
+    public void forEachTarget(String source, ObjIntConsumer<? super String> action) {
+        Vertex srcVertex = getVertexByLabel(source);
+        if (srcVertex == null) {
+            return;
+        }
+        for (Map.Entry<String, Integer> edge : srcVertex.edges.entrySet()) {
+            action.accept(edge.getKey(), edge.getValue());
         }
-        return result;
+    }
+
+    @Override
+    public void forEachSource(String target, ObjIntConsumer<? super String> action) {
+        for (Vertex vertex : vertices) {
+            Integer weight = vertex.getEdgeWeightTo(target);
+            if (weight != null) {
+                action.accept(vertex.label, weight);
+            }
+        }
+    }
+
+    @Override
+    public void forEachEdge(EdgeConsumer<? super String> action) {
+        for (Vertex vertex : vertices) {
+            for (Map.Entry<String, Integer> edge : vertex.edges.entrySet()) {
+                action.accept(vertex.label, edge.getKey(), edge.getValue());
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Integer> topTargets(String source, int k) {
+        return sortedTargets.top(source, k, this::targets);
+    }
+
+    @Override
+    public Map<String, Integer> topSources(String target, int k) {
+        return sortedSources.top(target, k, this::sources);
+    }
+
+    @Override
+    public MemoryStats memoryStats() {
+        long adjacencyBytes = Footprint.ARRAY_LIST
+                + Footprint.align(Footprint.ARRAY_HEADER + (long) vertices.size() * Footprint.REFERENCE)
+                + (long) vertices.size() * (Footprint.VERTEX_OBJECT + Footprint.HASH_MAP)
+                + edgeCount * (Footprint.HASH_NODE + Footprint.HASH_SLOT);
+        return new MemoryStats(vertices.size(), edgeCount, labelBytes, adjacencyBytes, weightBytes, 0);
     }
 
     // Implement the addEdge method as required by the interface
@@ -107,18 +216,144 @@ public class ConcreteVerticesGraph implements Graph<String> {
 
         Vertex srcVertex = getVertexByLabel(source);
         if (srcVertex == null) {
-            srcVertex = new Vertex(source);
-            vertices.add(srcVertex);  // Add source vertex if not found
+            srcVertex = addVertex(source);  // Add source vertex if not found
         }
 
         Vertex tgtVertex = getVertexByLabel(target);
         if (tgtVertex == null) {
-            tgtVertex = new Vertex(target);
-            vertices.add(tgtVertex);  // Add target vertex if not found
+            tgtVertex = addVertex(target);  // Add target vertex if not found
         }
 
         // Add the edge from source to target with the specified weight
-        srcVertex.addEdge(tgtVertex, weight);
+        sortedTargets.invalidate(source);
+        sortedSources.invalidate(target);
+        countEdge(srcVertex.addEdge(tgtVertex, weight), weight);
+        checkEdges(srcVertex, Set.of(target));
+        checkRep();
+    }
+
+    /**
+     * Same as Graph.setAll, in one O(V + targets) scan of the vertex list
+     * instead of one per edge; reading an edge list of S sources therefore
+     * costs O(S * V), since vertices are not indexed by label.
+     */
+    @Override
+    public void setAll(String source, Map<String, Integer> targets) {
+        if (source == null) {
+            throw new IllegalArgumentException("Source vertex cannot be null");
+        }
+        for (Map.Entry<String, Integer> target : targets.entrySet()) {
+            if (target.getKey() == null) {
+                throw new IllegalArgumentException("Target vertex cannot be null");
+            }
+            if (target.getValue() < 0) {
+                throw new IllegalArgumentException("Edge weight cannot be negative");
+            }
+        }
+
+        // one scan of the vertex list, instead of one per edge
+        Vertex srcVertex = null;
+        Set<String> missing = new HashSet<>(targets.keySet());
+        for (Vertex vertex : vertices) {
+            missing.remove(vertex.label);
+            if (vertex.label.equals(source)) {
+                srcVertex = vertex;
+            }
+        }
+        if (srcVertex == null) {
+            srcVertex = addVertex(source);
+            missing.remove(source);
+        }
+        for (String label : missing) {
+            addVertex(label);
+        }
+
+        sortedTargets.invalidate(source);
+        for (Map.Entry<String, Integer> target : targets.entrySet()) {
+            sortedSources.invalidate(target.getKey());
+            countEdge(srcVertex.setEdge(target.getKey(), target.getValue()), target.getValue());
+        }
+        checkEdges(srcVertex, targets.keySet());
+        checkRep();
+    }
+
+    @Override
+    public PruneResult prune(int minVertexDegree, int minEdgeWeight) {
+        long bytesBefore = memoryStats().totalBytes();
+        int edgesRemoved = 0;
+        long edgeBytes = 0;
+        Map<String, Integer> degrees = new HashMap<>();
+        for (Vertex vertex : vertices) {
+            int before = vertex.edges.size();
+            edgeBytes += vertex.removeEdgesLighterThan(minEdgeWeight);
+            edgesRemoved += before - vertex.edges.size();
+            degrees.merge(vertex.label, vertex.edges.size(), Integer::sum);
+            for (String target : vertex.edges.keySet()) {
+                degrees.merge(target, 1, Integer::sum);
+            }
+        }
+
+        Set<String> doomed = new HashSet<>();
+        for (Map.Entry<String, Integer> degree : degrees.entrySet()) {
+            if (degree.getValue() < minVertexDegree) {
+                doomed.add(degree.getKey());
+            }
+        }
+        if (!doomed.isEmpty()) {
+            Iterator<Vertex> it = vertices.iterator();
+            while (it.hasNext()) {
+                Vertex vertex = it.next();
+                int before = vertex.edges.size();
+                if (doomed.contains(vertex.label)) {
+                    edgeBytes += vertex.removeAllEdges();
+                    it.remove();
+                } else {
+                    edgeBytes += vertex.removeEdgesTo(doomed);
+                }
+                edgesRemoved += before - vertex.edges.size();
+            }
+        }
+        // edgeBytes counts a map entry plus the boxed weight for each removed edge
+        edgeCount -= edgesRemoved;
+        weightBytes -= edgeBytes - (long) edgesRemoved * (Footprint.HASH_NODE + Footprint.HASH_SLOT);
+        for (String label : doomed) {
+            labelBytes -= Footprint.label(label);
+        }
+        compact();
+        sortedTargets.clear();
+        sortedSources.clear();
+        checkRep();
+
+        return new PruneResult(doomed.size(), edgesRemoved, bytesBefore - memoryStats().totalBytes());
+    }
+
+    @Override
+    public void compact() {
+        vertices.trimToSize();
+        for (Vertex vertex : vertices) {
+            vertex.compact();
+        }
+    }
+
+    // Append a new vertex, which must not already exist
+    private Vertex addVertex(String label) {
+        Vertex vertex = new Vertex(label);
+        vertices.add(vertex);
+        labelBytes += Footprint.label(label);
+        return vertex;
+    }
+
+    // Update the running totals for one edge whose weight changed from
+    // previous to weight, where 0 means absent
+    private void countEdge(int previous, int weight) {
+        if (previous != 0) {
+            edgeCount--;
+            weightBytes -= Footprint.boxed(previous);
+        }
+        if (weight != 0) {
+            edgeCount++;
+            weightBytes += Footprint.boxed(weight);
+        }
     }
 
     // Helper method to get a vertex by its label
@@ -146,20 +381,67 @@ public class ConcreteVerticesGraph implements Graph<String> {
         return sb.toString();
     }
 
-    // Representation Invariant check
+    // Representation Invariant check, of the whole rep when the validation
+    // level calls for it on this check; O(V + E) when it runs
     private void checkRep() {
+        if (!Validation.level().checksAll(++repChecks)) {
+            return;
+        }
         assert vertices != null : "vertices list cannot be null";
         Set<String> labels = new HashSet<>();
+        long edges = 0;
+        long labelSum = 0;
+        long weightSum = 0;
         for (Vertex v : vertices) {
             assert v.label != null : "vertex label cannot be null";
             assert labels.add(v.label) : "duplicate vertex label: " + v.label;
+            labelSum += Footprint.label(v.label);
+            edges += v.edges.size();
+            for (int weight : v.edges.values()) {
+                assert weight > 0 : "non-positive edge weight from " + v.label;
+                weightSum += Footprint.boxed(weight);
+            }
+        }
+        for (Vertex v : vertices) {
+            for (String target : v.edges.keySet()) {
+                assert labels.contains(target) : "edge to missing vertex " + target;
+            }
+        }
+        assert edges == edgeCount : "edge count " + edgeCount + " but " + edges + " edges";
+        assert labelSum == labelBytes && weightSum == weightBytes : "stale memory totals";
+    }
+
+    // Check of the vertex and edges an operation touched, unless validation is
+    // off: source is listed once, each edge to targets has a positive weight
+    // and a target vertex, and the running totals are nonnegative. One O(V)
+    // scan of the vertex list, like the operations that call it.
+    private void checkEdges(Vertex source, Set<String> targets) {
+        if (!Validation.level().checksTouched()) {
+            return;
+        }
+        int copies = 0;
+        Set<String> listed = new HashSet<>();
+        for (Vertex v : vertices) {
+            if (v.label.equals(source.label)) {
+                copies++;
+            }
+            if (targets.contains(v.label)) {
+                listed.add(v.label);
+            }
         }
+        assert copies == 1 : "vertex " + source.label + " listed " + copies + " times";
+        for (String target : targets) {
+            Integer weight = source.edges.get(target);
+            assert weight == null || weight > 0 : "non-positive edge weight to " + target;
+            assert weight == null || listed.contains(target) : "edge to missing vertex " + target;
+        }
+        assert edgeCount >= 0 && labelBytes >= 0 && weightBytes >= 0 : "negative memory totals";
     }
 
     static class Vertex {
         
         final String label;
-        private final Map<String, Integer> edges = new HashMap<>();
+        private Map<String, Integer> edges = new HashMap<>();
         
         public Vertex(String label) {
             if (label == null) {
@@ -175,18 +457,60 @@ public class ConcreteVerticesGraph implements Graph<String> {
             if (weight < 0) {
                 throw new IllegalArgumentException("Edge weight cannot be negative");
             }
-            Integer previousWeight = edges.put(target.label, weight);
+            return setEdge(target.label, weight);
+        }
+
+        // a weight of 0 removes the edge; returns the previous weight, or 0 if there was none
+        public int setEdge(String targetLabel, int weight) {
+            Integer previousWeight = weight == 0 ? edges.remove(targetLabel) : edges.put(targetLabel, weight);
             return previousWeight != null ? previousWeight : 0;
         }
 
-        public boolean removeEdgeTo(String targetLabel) {
-            return edges.remove(targetLabel) != null;
+        // returns the weight of the removed edge, or 0 if there was none
+        public int removeEdgeTo(String targetLabel) {
+            Integer removed = edges.remove(targetLabel);
+            return removed != null ? removed : 0;
         }
 
         public Map<String, Integer> getEdges() {
             return new HashMap<>(edges);
         }
 
+        public Map<String, Integer> edgesView() {
+            return Collections.unmodifiableMap(edges);
+        }
+
+        // the removeEdges methods return the estimated bytes of the removed entries
+
+        public long removeEdgesLighterThan(int minWeight) {
+            return removeEdgesIf(edge -> edge.getValue() < minWeight);
+        }
+
+        public long removeEdgesTo(Set<String> targetLabels) {
+            return removeEdgesIf(edge -> targetLabels.contains(edge.getKey()));
+        }
+
+        public long removeAllEdges() {
+            return removeEdgesIf(edge -> true);
+        }
+
+        private long removeEdgesIf(Predicate<Map.Entry<String, Integer>> doomed) {
+            long bytes = 0;
+            Iterator<Map.Entry<String, Integer>> it = edges.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Integer> edge = it.next();
+                if (doomed.test(edge)) {
+                    bytes += Footprint.weightedEntry(edge.getValue());
+                    it.remove();
+                }
+            }
+            return bytes;
+        }
+
+        public void compact() {
+            edges = new HashMap<>(edges);
+        }
+
         public Integer getEdgeWeightTo(String targetLabel) {
             return edges.get(targetLabel);
         }
@@ -0,0 +1,90 @@
+package graph;
+
+import java.util.Objects;
+
+/**
+ * Represents an edge in a weighted directed graph.
+ * An edge connects a source vertex to a target vertex with a specified weight.
+ */
+class Edge {
+    
+    private final String source;
+    private final String target;
+    private final int weight;
+    
+    // Abstraction function:
+    //   An Edge connects a source vertex to a target vertex with a specific weight.
+    // Representation invariant:
+    //   source != null && target != null
+    //   weight >= 0
+    // Safety from rep exposure:
+    //   All fields are final and private, ensuring immutability.
+
+    /**
+     * Creates a new Edge.
+     * @param source the source vertex
+     * @param target the target vertex
+     * @param weight the weight of the edge
+     */
+    public Edge(String source, String target, int weight) {
+        if (source == null || target == null || weight < 0) {
+            throw new IllegalArgumentException("Invalid edge parameters");
+        }
+        this.source = source;
+        this.target = target;
+        this.weight = weight;
+    }
+
+    /**
+     * Gets the source vertex of the edge.
+     * @return the source vertex
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Gets the target vertex of the edge.
+     * @return the target vertex
+     */
+    public String getTarget() {
+        return target;
+    }
+
+    /**
+     * Gets the weight of the edge.
+     * @return the weight of the edge
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * @param source a vertex label
+     * @param target a vertex label
+     * @return true iff this edge goes from source to target, whatever its weight
+     */
+    public boolean connects(String source, String target) {
+        return this.source.equals(source) && this.target.equals(target);
+    }
+
+    @Override
+    public String toString() {
+        return source + " -> " + target + " [weight=" + weight + "]";
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        Edge edge = (Edge) obj;
+        return weight == edge.weight &&
+               source.equals(edge.source) &&
+               target.equals(edge.target);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(source, target, weight);
+    }
+}
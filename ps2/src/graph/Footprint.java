@@ -0,0 +1,82 @@
+package graph;
+
+/**
+ * Analytic estimates of the heap cost of graph representations, assuming a
+ * 64-bit JVM with compressed object pointers. Public for graphs implemented
+ * outside this package, so every MemoryStats uses the same model.
+ */
+public final class Footprint {
+
+    /** A compressed object reference. */
+    public static final int REFERENCE = 4;
+
+    /** One HashMap.Node: header, hash, key, value and next references. */
+    public static final int HASH_NODE = 32;
+
+    /** Share of a HashMap table slot per entry at the default 0.75 load factor, rounded up. */
+    public static final int HASH_SLOT = 6;
+
+    /** An empty HashMap object, without its table. */
+    public static final int HASH_MAP = 48;
+
+    /** A boxed Integer outside the small-value cache. */
+    public static final int INTEGER = 16;
+
+    /** A ConcreteEdgesGraph Edge: header, two references and an int. */
+    public static final int EDGE_OBJECT = 24;
+
+    /** A ConcreteVerticesGraph Vertex: header and two references. */
+    public static final int VERTEX_OBJECT = 16;
+
+    /** An ArrayList object, without its element array. */
+    public static final int ARRAY_LIST = 24;
+
+    /** An array header. */
+    public static final int ARRAY_HEADER = 16;
+
+    /** A String object, without its byte array. */
+    public static final int STRING = 24;
+
+    /** A plain object with no fields, the fallback for labels of unknown type. */
+    public static final int OBJECT = 16;
+
+    /**
+     * @param label a vertex label
+     * @return estimated bytes of label, assuming one byte per character for strings
+     */
+    public static long label(Object label) {
+        if (label instanceof String) {
+            return STRING + align(ARRAY_HEADER + ((String) label).length());
+        }
+        return OBJECT;
+    }
+
+    /**
+     * @param weight an edge weight
+     * @return bytes of weight when boxed; 0 for values Integer.valueOf shares from its cache
+     */
+    public static int boxed(int weight) {
+        return weight >= -128 && weight <= 127 ? 0 : INTEGER;
+    }
+
+    /**
+     * @param weight an edge weight
+     * @return bytes of one entry of a HashMap from label to weight, counting
+     *         the boxed weight as boxed(weight) does
+     */
+    public static int weightedEntry(int weight) {
+        return HASH_NODE + HASH_SLOT + boxed(weight);
+    }
+
+    /**
+     * @param bytes a size in bytes
+     * @return bytes rounded up to the 8-byte object alignment
+     */
+    public static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private Footprint() {
+        // not instantiable
+    }
+}
@@ -1,16 +1,43 @@
 package graph;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+import metrics.Metrics;
 
 /**
  * Mutable weighted directed graph implementation with labeled vertices.
+ * 
+ * <p>vertices() and targets() return unmodifiable live views rather than copies:
+ * they reflect later add, set and remove calls on the graph. Iterating a view
+ * while the graph is modified fails with ConcurrentModificationException on a
+ * best-effort basis, and views obtained before prune() or compact() stop
+ * reflecting the graph. The forEach methods visit the same data without
+ * allocating result maps. A graph is safe to read from many threads only while
+ * no thread modifies it; otherwise callers must synchronize externally.
  */
-public class Graph<L>{
+public class Graph<L> implements ReadableGraph<L> {
+
+    private Map<L, Map<L, Integer>> adjacencyMap;
+    private final SortedAdjacencyIndex<L> sortedTargets = new SortedAdjacencyIndex<>();
+    private final SortedAdjacencyIndex<L> sortedSources = new SortedAdjacencyIndex<>();
+    private long repChecks;
+    private long edgeCount;
+    private long labelBytes;
+    private long weightBytes;
 
-    private final Map<L, Map<L, Integer>> adjacencyMap;
+    // Representation invariant:
+    //   every target in every adjacency map is a key of adjacencyMap
+    //   every weight is positive
+    //   sortedTargets and sortedSources only cache adjacencies that match adjacencyMap
+    //   edgeCount is the number of edges, labelBytes the sum of Footprint.label over
+    //     vertices, and weightBytes the sum of Footprint.boxed over weights
 
     // Constructor
     public Graph() {
@@ -22,10 +49,36 @@ public class Graph<L>{
             return false;
         }
         adjacencyMap.put(vertex, new HashMap<>());
+        labelBytes += Footprint.label(vertex);
+        checkEdge(vertex, vertex);
+        checkRep();
         return true;
     }
 
+    /**
+     * Add, change, or remove a weighted directed edge. Every implementation
+     * adds source and target as vertices if they are missing, even when
+     * weight is 0.
+     *
+     * @param source label of the source vertex; added if missing
+     * @param target label of the target vertex; added if missing
+     * @param weight nonnegative weight of the edge; 0 removes the edge
+     * @return previous weight of the edge, or 0 if there was none
+     * @throws IllegalArgumentException if weight is negative
+     */
     public int set(L source, L target, int weight) {
+        if (!Metrics.isOn()) {
+            return setEdge(source, target, weight);
+        }
+        long start = System.nanoTime();
+        try {
+            return setEdge(source, target, weight);
+        } finally {
+            Metrics.GRAPH_SET.record(System.nanoTime() - start);
+        }
+    }
+
+    private int setEdge(L source, L target, int weight) {
         if (weight < 0) {
             throw new IllegalArgumentException("Weight must be non-negative");
         }
@@ -35,14 +88,15 @@ public class Graph<L>{
         add(target);
 
         Map<L, Integer> targets = adjacencyMap.get(source);
+        sortedTargets.invalidate(source);
+        sortedSources.invalidate(target);
 
-        if (weight == 0) {
-            // Remove edge if weight is zero
-            return targets.remove(target) != null ? weight : 0;
-        }
-
-        // Add or update the edge
-        return targets.put(target, weight) != null ? targets.get(target) : 0;
+        // Remove edge if weight is zero, otherwise add or update it
+        Integer previous = weight == 0 ? targets.remove(target) : targets.put(target, weight);
+        countEdge(previous, weight);
+        checkEdge(source, target);
+        checkRep();
+        return previous == null ? 0 : previous;
     }
 
     public boolean remove(L vertex) {
@@ -51,21 +105,42 @@ public class Graph<L>{
         }
 
         // Remove all edges from the graph
-        adjacencyMap.remove(vertex);
+        for (Integer weight : adjacencyMap.remove(vertex).values()) {
+            countEdge(weight, 0);
+        }
+        labelBytes -= Footprint.label(vertex);
+        sortedTargets.clear();
+        sortedSources.clear();
 
         // Remove all edges to the vertex
         for (Map<L, Integer> targets : adjacencyMap.values()) {
-            targets.remove(vertex);
+            Integer weight = targets.remove(vertex);
+            if (weight != null) {
+                countEdge(weight, 0);
+            }
         }
 
+        checkRep();
         return true;
     }
 
     public Set<L> vertices() {
-        return new HashSet<>(adjacencyMap.keySet());
+        return Collections.unmodifiableSet(adjacencyMap.keySet());
     }
 
     public Map<L, Integer> sources(L target) {
+        if (!Metrics.isOn()) {
+            return collectSources(target);
+        }
+        long start = System.nanoTime();
+        try {
+            return collectSources(target);
+        } finally {
+            Metrics.GRAPH_SOURCES.record(System.nanoTime() - start);
+        }
+    }
+
+    private Map<L, Integer> collectSources(L target) {
         Map<L, Integer> sources = new HashMap<>();
 
         for (Map.Entry<L, Map<L, Integer>> entry : adjacencyMap.entrySet()) {
@@ -81,13 +156,296 @@ public class Graph<L>{
     }
 
     public Map<L, Integer> targets(L source) {
-        return adjacencyMap.getOrDefault(source, new HashMap<>());
+        if (!Metrics.isOn()) {
+            return targetsView(source);
+        }
+        long start = System.nanoTime();
+        try {
+            return targetsView(source);
+        } finally {
+            Metrics.GRAPH_TARGETS.record(System.nanoTime() - start);
+        }
+    }
+
+    private Map<L, Integer> targetsView(L source) {
+        Map<L, Integer> targets = adjacencyMap.get(source);
+        return targets == null ? Collections.emptyMap() : Collections.unmodifiableMap(targets);
+    }
+
+    /**
+     * Get the weight of one edge, in O(1).
+     * @param source a label
+     * @param target a label
+     * @return weight of the edge from source to target, or 0 if there is none
+     */
+    @Override
+    public int weight(L source, L target) {
+        Map<L, Integer> targets = adjacencyMap.get(source);
+        Integer weight = targets == null ? null : targets.get(target);
+        return weight == null ? 0 : weight;
+    }
+
+    /**
+     * Pass every vertex to action.
+     * @param action called once per vertex
+     */
+    public void forEachVertex(Consumer<? super L> action) {
+        for (L vertex : adjacencyMap.keySet()) {
+            action.accept(vertex);
+        }
+    }
+
+    /**
+     * Pass every edge out of source to action, as (target, weight).
+     * @param source a label
+     * @param action called once per edge out of source
+     */
+    public void forEachTarget(L source, ObjIntConsumer<? super L> action) {
+        Map<L, Integer> targets = adjacencyMap.get(source);
+        if (targets == null) {
+            return;
+        }
+        for (Map.Entry<L, Integer> edge : targets.entrySet()) {
+            action.accept(edge.getKey(), edge.getValue());
+        }
+    }
+
+    /**
+     * Pass every edge into target to action, as (source, weight).
+     * @param target a label
+     * @param action called once per edge into target
+     */
+    public void forEachSource(L target, ObjIntConsumer<? super L> action) {
+        for (Map.Entry<L, Map<L, Integer>> entry : adjacencyMap.entrySet()) {
+            Integer weight = entry.getValue().get(target);
+            if (weight != null) {
+                action.accept(entry.getKey(), weight);
+            }
+        }
+    }
+
+    /**
+     * Pass every edge of the graph to action, as (source, target, weight),
+     * in one pass over the adjacency map.
+     * @param action called once per edge
+     */
+    @Override
+    public void forEachEdge(EdgeConsumer<? super L> action) {
+        for (Map.Entry<L, Map<L, Integer>> entry : adjacencyMap.entrySet()) {
+            L source = entry.getKey();
+            for (Map.Entry<L, Integer> edge : entry.getValue().entrySet()) {
+                action.accept(source, edge.getKey(), edge.getValue());
+            }
+        }
     }
 
     public void addEdge(L source, L target, int weight) {
         set(source, target, weight);
     }
 
+    /**
+     * Set the weights of many edges out of one vertex. Same as calling
+     * set(source, target, weight) for each entry of targets, but the source
+     * is looked up once, so bulk loading costs one call per vertex.
+     *
+     * @param source label of the source vertex; added if missing
+     * @param targets map from target labels, added if missing, to nonnegative
+     *        weights; a weight of 0 removes the edge
+     * @throws IllegalArgumentException if any weight is negative, in which case
+     *         the graph is unchanged
+     */
+    public void setAll(L source, Map<L, Integer> targets) {
+        for (Integer weight : targets.values()) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weight must be non-negative");
+            }
+        }
+        add(source);
+        Map<L, Integer> edges = adjacencyMap.get(source);
+        sortedTargets.invalidate(source);
+        for (Map.Entry<L, Integer> edge : targets.entrySet()) {
+            add(edge.getKey());
+            sortedSources.invalidate(edge.getKey());
+            Integer previous = edge.getValue() == 0
+                    ? edges.remove(edge.getKey())
+                    : edges.put(edge.getKey(), edge.getValue());
+            countEdge(previous, edge.getValue());
+            checkEdge(source, edge.getKey());
+        }
+        checkRep();
+    }
+
+    /**
+     * Get the heaviest edges out of a vertex. The adjacency of each vertex is
+     * sorted on the first query and cached, in a bounded cache of recently
+     * queried vertices, until it changes, so repeated queries cost O(k).
+     *
+     * @param source a label
+     * @param k maximum number of targets to return, nonnegative
+     * @return unmodifiable map of at most k targets of source to edge weights,
+     *         iterating from heaviest to lightest
+     */
+    public Map<L, Integer> topTargets(L source, int k) {
+        return sortedTargets.top(source, k, this::targets);
+    }
+
+    /**
+     * Get the heaviest edges into a vertex. The adjacency of each vertex is
+     * sorted on the first query and cached, in a bounded cache of recently
+     * queried vertices, until it changes, so repeated queries cost O(k).
+     *
+     * @param target a label
+     * @param k maximum number of sources to return, nonnegative
+     * @return unmodifiable map of at most k sources of target to edge weights,
+     *         iterating from heaviest to lightest
+     */
+    public Map<L, Integer> topSources(L target, int k) {
+        return sortedSources.top(target, k, this::sources);
+    }
+
+    /**
+     * Remove every edge lighter than minEdgeWeight, then every vertex whose
+     * remaining in-degree plus out-degree is less than minVertexDegree, together
+     * with its edges, and compact the graph. Runs in O(V + E) overall; vertices
+     * left under-connected by the second step are not removed.
+     *
+     * @param minVertexDegree smallest degree a vertex needs to be kept
+     * @param minEdgeWeight smallest weight an edge needs to be kept
+     * @return how many vertices and edges were removed, and the drop in
+     *         memoryStats().totalBytes()
+     */
+    public PruneResult prune(int minVertexDegree, int minEdgeWeight) {
+        long bytesBefore = memoryStats().totalBytes();
+        int edgesRemoved = 0;
+        Map<L, Integer> degrees = new HashMap<>();
+        for (Map.Entry<L, Map<L, Integer>> entry : adjacencyMap.entrySet()) {
+            Iterator<Map.Entry<L, Integer>> edges = entry.getValue().entrySet().iterator();
+            while (edges.hasNext()) {
+                Map.Entry<L, Integer> edge = edges.next();
+                if (edge.getValue() < minEdgeWeight) {
+                    countEdge(edge.getValue(), 0);
+                    edges.remove();
+                    edgesRemoved++;
+                } else {
+                    degrees.merge(edge.getKey(), 1, Integer::sum);
+                }
+            }
+            degrees.merge(entry.getKey(), entry.getValue().size(), Integer::sum);
+        }
+
+        Set<L> doomed = new HashSet<>();
+        for (Map.Entry<L, Integer> degree : degrees.entrySet()) {
+            if (degree.getValue() < minVertexDegree) {
+                doomed.add(degree.getKey());
+            }
+        }
+        if (!doomed.isEmpty()) {
+            Iterator<Map.Entry<L, Map<L, Integer>>> vertices = adjacencyMap.entrySet().iterator();
+            while (vertices.hasNext()) {
+                Map.Entry<L, Map<L, Integer>> entry = vertices.next();
+                boolean doomedSource = doomed.contains(entry.getKey());
+                Iterator<Map.Entry<L, Integer>> edges = entry.getValue().entrySet().iterator();
+                while (edges.hasNext()) {
+                    Map.Entry<L, Integer> edge = edges.next();
+                    if (doomedSource || doomed.contains(edge.getKey())) {
+                        countEdge(edge.getValue(), 0);
+                        edges.remove();
+                        edgesRemoved++;
+                    }
+                }
+                if (doomedSource) {
+                    labelBytes -= Footprint.label(entry.getKey());
+                    vertices.remove();
+                }
+            }
+        }
+        compact();
+        sortedTargets.clear();
+        sortedSources.clear();
+
+        // measured by the same estimate as memoryStats(), so the two always agree
+        return new PruneResult(doomed.size(), edgesRemoved, bytesBefore - memoryStats().totalBytes());
+    }
+
+    /**
+     * Shrink internal storage to fit the current vertices and edges. Maps
+     * previously returned by targets() no longer reflect later changes.
+     */
+    public void compact() {
+        Map<L, Map<L, Integer>> compacted = new HashMap<>(adjacencyMap.size() * 4 / 3 + 1);
+        for (Map.Entry<L, Map<L, Integer>> entry : adjacencyMap.entrySet()) {
+            compacted.put(entry.getKey(), new HashMap<>(entry.getValue()));
+        }
+        adjacencyMap = compacted;
+        checkRep();
+    }
+
+    /*
+     * Update the running totals for one edge whose weight changed from
+     * previous, null or 0 if absent, to weight, 0 if now absent.
+     */
+    private void countEdge(Integer previous, int weight) {
+        if (previous != null && previous != 0) {
+            edgeCount--;
+            weightBytes -= Footprint.boxed(previous);
+        }
+        if (weight != 0) {
+            edgeCount++;
+            weightBytes += Footprint.boxed(weight);
+        }
+    }
+
+    /*
+     * Check the whole representation invariant, when the validation level
+     * calls for it on this check; O(V + E) when it runs.
+     */
+    private void checkRep() {
+        if (!Validation.level().checksAll(++repChecks)) {
+            return;
+        }
+        long edges = 0;
+        long labels = 0;
+        long weights = 0;
+        for (Map.Entry<L, Map<L, Integer>> entry : adjacencyMap.entrySet()) {
+            labels += Footprint.label(entry.getKey());
+            for (Map.Entry<L, Integer> edge : entry.getValue().entrySet()) {
+                assert adjacencyMap.containsKey(edge.getKey()) : "edge to missing vertex " + edge.getKey();
+                assert edge.getValue() > 0 : "non-positive weight to " + edge.getKey();
+                edges++;
+                weights += Footprint.boxed(edge.getValue());
+            }
+        }
+        assert edges == edgeCount : "edge count " + edgeCount + " but " + edges + " edges";
+        assert labels == labelBytes && weights == weightBytes : "stale memory totals";
+    }
+
+    /*
+     * Check the edge source -> target an operation touched, and the running
+     * totals it updated, in O(1), unless validation is off.
+     */
+    private void checkEdge(L source, L target) {
+        if (Validation.level().checksTouched()) {
+            assert adjacencyMap.containsKey(source) : "missing source vertex " + source;
+            assert adjacencyMap.containsKey(target) : "missing target vertex " + target;
+            Integer weight = adjacencyMap.get(source).get(target);
+            assert weight == null || weight > 0 : "non-positive weight to " + target;
+            assert edgeCount >= 0 && labelBytes >= 0 && weightBytes >= 0 : "negative memory totals";
+        }
+    }
+
+    /**
+     * Estimate the heap held by this graph, in O(1) from totals kept up to date
+     * by every mutator.
+     *
+     * @return vertex and edge counts and estimated bytes of labels, hash maps and boxed weights
+     */
+    public MemoryStats memoryStats() {
+        long adjacencyBytes = Footprint.HASH_MAP
+                + (long) adjacencyMap.size() * (Footprint.HASH_NODE + Footprint.HASH_SLOT + Footprint.HASH_MAP)
+                + edgeCount * (Footprint.HASH_NODE + Footprint.HASH_SLOT);
+        return new MemoryStats(adjacencyMap.size(), edgeCount, labelBytes, adjacencyBytes, weightBytes, 0);
+    }
+
     /**
      * Factory method to create an empty graph.
      */
@@ -0,0 +1,377 @@
+package graph;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streaming export and import of graphs.
+ *
+ * <p>Exporters visit all edges with one forEachEdge call and write through one
+ * reused buffer, so they take time linear in the size of the graph and, unlike
+ * toString(), do not hold its text in memory. Two formats are written:
+ * <ul>
+ * <li>TSV edge list: one line "source\ttarget\tweight" per edge, then one line
+ *     holding just the label for each vertex without outgoing edges. Tabs,
+ *     newlines, carriage returns and backslashes in labels are escaped as
+ *     \t, \n, \r and \\. Labels are written with String.valueOf.
+ * <li>Graphviz DOT: a digraph with one quoted node per vertex and one edge per
+ *     edge, labeled with its weight.
+ * </ul>
+ * The edge-list importer reads the same format back and loads each run of
+ * lines with the same source with one {@link Graph#setAll} call. Empty labels
+ * are not supported by the edge-list format.
+ *
+ * <p>Output is UTF-8 when written to a channel. Channels and writers are
+ * flushed where possible but never closed.
+ */
+public final class GraphIO {
+
+    private static final int BUFFER_CHARS = 1 << 16;
+
+    private GraphIO() {
+        throw new AssertionError("GraphIO is not instantiable");
+    }
+
+    /**
+     * Write graph as a TSV edge list.
+     * @param graph graph to export
+     * @param out destination of the UTF-8 edge list
+     * @return number of edges written
+     * @throws IOException if out cannot be written
+     */
+    public static <L> long writeEdgeList(ReadableGraph<L> graph, WritableByteChannel out) throws IOException {
+        return writeEdgeList(graph, new Sink(out));
+    }
+
+    /**
+     * Write graph as a TSV edge list.
+     * @param graph graph to export
+     * @param out destination of the edge list
+     * @return number of edges written
+     * @throws IOException if out cannot be written
+     */
+    public static <L> long writeEdgeList(ReadableGraph<L> graph, Writer out) throws IOException {
+        return writeEdgeList(graph, new Sink(out));
+    }
+
+    /**
+     * Write graph in Graphviz DOT format.
+     * @param graph graph to export
+     * @param out destination of the UTF-8 DOT text
+     * @return number of edges written
+     * @throws IOException if out cannot be written
+     */
+    public static <L> long writeDot(ReadableGraph<L> graph, WritableByteChannel out) throws IOException {
+        return writeDot(graph, new Sink(out));
+    }
+
+    /**
+     * Write graph in Graphviz DOT format.
+     * @param graph graph to export
+     * @param out destination of the DOT text
+     * @return number of edges written
+     * @throws IOException if out cannot be written
+     */
+    public static <L> long writeDot(ReadableGraph<L> graph, Writer out) throws IOException {
+        return writeDot(graph, new Sink(out));
+    }
+
+    /**
+     * Add the vertices and edges of a TSV edge list to graph. Edges already in
+     * graph are overwritten by edges of the list, and others are kept.
+     * @param in UTF-8 edge list, as written by writeEdgeList
+     * @param graph graph to load into
+     * @return number of edges read
+     * @throws IOException if in cannot be read or a line is malformed
+     */
+    public static long readEdgeList(ReadableByteChannel in, Graph<String> graph) throws IOException {
+        return readEdgeList(Channels.newReader(in, StandardCharsets.UTF_8.newDecoder(), -1), graph);
+    }
+
+    /**
+     * Add the vertices and edges of a TSV edge list to graph. Edges already in
+     * graph are overwritten by edges of the list, and others are kept.
+     *
+     * <p>Each run of lines with the same source is one graph.setAll() call, so
+     * the cost is that of setAll per source: O(E) overall for Graph, and for S
+     * sources up to O(S * E) for a ConcreteEdgesGraph and O(S * V) for a
+     * ConcreteVerticesGraph.
+     *
+     * @param in edge list, as written by writeEdgeList
+     * @param graph graph to load into
+     * @return number of edges read
+     * @throws IOException if in cannot be read or a line is malformed
+     */
+    public static long readEdgeList(Reader in, Graph<String> graph) throws IOException {
+        BufferedReader reader = new BufferedReader(in, BUFFER_CHARS);
+        String source = null;
+        Map<String, Integer> targets = new LinkedHashMap<>();
+        long edges = 0;
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split("\t", -1);
+            if (fields.length == 1) {
+                graph.add(unescape(fields[0], lineNumber));
+                continue;
+            }
+            if (fields.length != 3 || fields[0].isEmpty() || fields[1].isEmpty()) {
+                throw new IOException("Malformed edge list line " + lineNumber + ": " + line);
+            }
+            String edgeSource = unescape(fields[0], lineNumber);
+            int weight;
+            try {
+                weight = Integer.parseInt(fields[2]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed edge weight on line " + lineNumber + ": " + line, e);
+            }
+            if (weight < 0) {
+                throw new IOException("Negative edge weight on line " + lineNumber + ": " + line);
+            }
+            if (!edgeSource.equals(source)) {
+                if (source != null) {
+                    graph.setAll(source, targets);
+                    targets.clear();
+                }
+                source = edgeSource;
+            }
+            targets.put(unescape(fields[1], lineNumber), weight);
+            edges++;
+        }
+        if (source != null) {
+            graph.setAll(source, targets);
+        }
+        return edges;
+    }
+
+    private static <L> long writeEdgeList(ReadableGraph<L> graph, Sink sink) throws IOException {
+        long[] edges = { 0 };
+        // vertices with an outgoing edge, so the rest get a line of their own
+        Set<L> sources = new HashSet<>();
+        try {
+            graph.forEachEdge((source, target, weight) -> {
+                sources.add(source);
+                sink.escapedTsv(String.valueOf(source)).append('\t')
+                    .escapedTsv(String.valueOf(target)).append('\t')
+                    .append(weight).append('\n');
+                edges[0]++;
+            });
+            graph.forEachVertex(vertex -> {
+                if (!sources.contains(vertex)) {
+                    sink.escapedTsv(String.valueOf(vertex)).append('\n');
+                }
+            });
+            sink.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return edges[0];
+    }
+
+    private static <L> long writeDot(ReadableGraph<L> graph, Sink sink) throws IOException {
+        long[] edges = { 0 };
+        try {
+            sink.append("digraph {\n");
+            graph.forEachVertex(vertex -> sink.append("  \"").escapedDot(String.valueOf(vertex)).append("\";\n"));
+            graph.forEachEdge((source, target, weight) -> {
+                sink.append("  \"").escapedDot(String.valueOf(source)).append("\" -> \"")
+                    .escapedDot(String.valueOf(target)).append("\" [weight=").append(weight)
+                    .append(", label=").append(weight).append("];\n");
+                edges[0]++;
+            });
+            sink.append("}\n");
+            sink.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return edges[0];
+    }
+
+    private static String unescape(String field, long lineNumber) throws IOException {
+        if (field.indexOf('\\') < 0) {
+            return field;
+        }
+        StringBuilder label = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c != '\\') {
+                label.append(c);
+                continue;
+            }
+            char escaped = ++i < field.length() ? field.charAt(i) : '?';
+            switch (escaped) {
+            case 't': label.append('\t'); break;
+            case 'n': label.append('\n'); break;
+            case 'r': label.append('\r'); break;
+            case '\\': label.append('\\'); break;
+            default:
+                throw new IOException("Malformed escape on line " + lineNumber + ": " + field);
+            }
+        }
+        return label.toString();
+    }
+
+    /*
+     * A reused character buffer in front of a Writer or a channel. When full,
+     * it is written to the Writer, or encoded into a reused byte buffer and
+     * written to the channel. Write failures are thrown as UncheckedIOException
+     * so the sink can be used from forEach callbacks.
+     */
+    private static final class Sink {
+        private final CharBuffer chars = CharBuffer.allocate(BUFFER_CHARS);
+        private final Writer writer;
+        private final WritableByteChannel channel;
+        private final CharsetEncoder encoder;
+        private final ByteBuffer bytes;
+
+        Sink(Writer writer) {
+            this.writer = writer;
+            this.channel = null;
+            this.encoder = null;
+            this.bytes = null;
+        }
+
+        Sink(WritableByteChannel channel) {
+            this.writer = null;
+            this.channel = channel;
+            this.encoder = StandardCharsets.UTF_8.newEncoder();
+            this.bytes = ByteBuffer.allocate((int) (BUFFER_CHARS * encoder.maxBytesPerChar()));
+        }
+
+        Sink append(char c) {
+            if (!chars.hasRemaining()) {
+                drain(false);
+            }
+            chars.put(c);
+            return this;
+        }
+
+        Sink append(String s) {
+            for (int i = 0; i < s.length(); i++) {
+                append(s.charAt(i));
+            }
+            return this;
+        }
+
+        /* Appends the decimal digits of n without allocating a String. */
+        Sink append(int n) {
+            if (chars.remaining() < 11) {
+                drain(false);
+            }
+            long value = n;
+            if (value < 0) {
+                chars.put('-');
+                value = -value;
+            }
+            int start = chars.position();
+            do {
+                chars.put((char) ('0' + value % 10));
+                value /= 10;
+            } while (value > 0);
+            for (int i = start, j = chars.position() - 1; i < j; i++, j--) {
+                char c = chars.get(i);
+                chars.put(i, chars.get(j));
+                chars.put(j, c);
+            }
+            return this;
+        }
+
+        Sink escapedTsv(String label) {
+            for (int i = 0; i < label.length(); i++) {
+                char c = label.charAt(i);
+                switch (c) {
+                case '\t': append('\\').append('t'); break;
+                case '\n': append('\\').append('n'); break;
+                case '\r': append('\\').append('r'); break;
+                case '\\': append('\\').append('\\'); break;
+                default: append(c);
+                }
+            }
+            return this;
+        }
+
+        Sink escapedDot(String label) {
+            for (int i = 0; i < label.length(); i++) {
+                char c = label.charAt(i);
+                switch (c) {
+                case '"': append('\\').append('"'); break;
+                case '\\': append('\\').append('\\'); break;
+                case '\n': append('\\').append('n'); break;
+                case '\r': append('\\').append('r'); break;
+                default: append(c);
+                }
+            }
+            return this;
+        }
+
+        void flush() {
+            drain(true);
+            try {
+                if (writer != null) {
+                    writer.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /*
+         * Write out the buffered characters. A surrogate pair split at the end
+         * of the buffer stays buffered until more characters arrive, unless
+         * endOfInput.
+         */
+        private void drain(boolean endOfInput) {
+            chars.flip();
+            try {
+                if (writer != null) {
+                    writer.write(chars.array(), chars.position(), chars.remaining());
+                    chars.position(chars.limit());
+                } else {
+                    CoderResult result;
+                    do {
+                        result = encoder.encode(chars, bytes, endOfInput);
+                        if (result.isError()) {
+                            result.throwException();
+                        }
+                        writeBytes();
+                    } while (result.isOverflow());
+                    if (endOfInput) {
+                        encoder.flush(bytes);
+                        writeBytes();
+                        encoder.reset();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            chars.compact();
+        }
+
+        private void writeBytes() throws IOException {
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            bytes.clear();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package graph;
+
+import java.util.List;
+
+/**
+ * Immutable estimate of the heap held by a graph, and optionally by the corpus
+ * it was built from.
+ * 
+ * <p>Estimates are computed from object counts and sizes, assuming a 64-bit
+ * JVM with compressed object pointers and one byte per character of string
+ * labels, not by walking the heap. Caches of top-k queries are not included.
+ */
+public class MemoryStats {
+
+    private final int vertexCount;
+    private final long edgeCount;
+    private final long labelBytes;
+    private final long adjacencyBytes;
+    private final long weightBytes;
+    private final long corpusBytes;
+
+    // Abstraction function:
+    //   Reports a graph of vertexCount vertices and edgeCount edges whose labels,
+    //   adjacency structures and weights take about labelBytes, adjacencyBytes and
+    //   weightBytes of heap, plus corpusBytes for a retained corpus.
+    // Representation invariant:
+    //   all fields >= 0
+    // Safety from rep exposure:
+    //   All fields are private, final and primitive.
+
+    /**
+     * Creates a footprint estimate.
+     * @param vertexCount number of vertices
+     * @param edgeCount number of edges
+     * @param labelBytes estimated bytes of vertex labels
+     * @param adjacencyBytes estimated bytes of maps, lists and edge objects
+     * @param weightBytes estimated bytes of edge weights
+     * @param corpusBytes estimated bytes of a retained corpus, or 0
+     */
+    public MemoryStats(int vertexCount, long edgeCount, long labelBytes, long adjacencyBytes,
+            long weightBytes, long corpusBytes) {
+        if (vertexCount < 0 || edgeCount < 0 || labelBytes < 0 || adjacencyBytes < 0
+                || weightBytes < 0 || corpusBytes < 0) {
+            throw new IllegalArgumentException("Memory statistics cannot be negative");
+        }
+        this.vertexCount = vertexCount;
+        this.edgeCount = edgeCount;
+        this.labelBytes = labelBytes;
+        this.adjacencyBytes = adjacencyBytes;
+        this.weightBytes = weightBytes;
+        this.corpusBytes = corpusBytes;
+    }
+
+    /**
+     * @param corpusBytes estimated bytes of the corpus retained alongside this graph
+     * @return the same graph estimate, with corpusBytes added
+     */
+    public MemoryStats withCorpusBytes(long corpusBytes) {
+        return new MemoryStats(vertexCount, edgeCount, labelBytes, adjacencyBytes, weightBytes,
+                this.corpusBytes + corpusBytes);
+    }
+
+    /**
+     * @param words list of strings, like a tokenized corpus
+     * @return estimated bytes of an ArrayList holding words, counting every string
+     *         separately, or 0 for an empty list
+     */
+    public static long estimateWordListBytes(List<String> words) {
+        if (words.isEmpty()) {
+            return 0;
+        }
+        long bytes = Footprint.ARRAY_LIST + Footprint.align(Footprint.ARRAY_HEADER
+                + (long) words.size() * Footprint.REFERENCE);
+        for (String word : words) {
+            bytes += Footprint.label(word);
+        }
+        return bytes;
+    }
+
+    /**
+     * @return number of vertices
+     */
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * @return number of edges
+     */
+    public long edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * @return estimated bytes of vertex labels
+     */
+    public long labelBytes() {
+        return labelBytes;
+    }
+
+    /**
+     * @return estimated bytes of adjacency maps, lists and edge objects, excluding weights
+     */
+    public long adjacencyBytes() {
+        return adjacencyBytes;
+    }
+
+    /**
+     * @return estimated bytes of edge weights
+     */
+    public long weightBytes() {
+        return weightBytes;
+    }
+
+    /**
+     * @return estimated bytes of a retained corpus, or 0 if none
+     */
+    public long corpusBytes() {
+        return corpusBytes;
+    }
+
+    /**
+     * @return sum of all estimated bytes
+     */
+    public long totalBytes() {
+        return labelBytes + adjacencyBytes + weightBytes + corpusBytes;
+    }
+
+    /**
+     * @return estimated bytes of the graph alone per edge, or 0 if there are no edges
+     */
+    public double bytesPerEdge() {
+        return edgeCount == 0 ? 0 : (double) (labelBytes + adjacencyBytes + weightBytes) / edgeCount;
+    }
+
+    @Override
+    public String toString() {
+        return vertexCount + " vertices, " + edgeCount + " edges, ~" + totalBytes() + " bytes (labels "
+                + labelBytes + ", adjacency " + adjacencyBytes + ", weights " + weightBytes
+                + ", corpus " + corpusBytes + ")";
+    }
+}
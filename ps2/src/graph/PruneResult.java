@@ -0,0 +1,61 @@
+package graph;
+
+/**
+ * Immutable summary of a prune operation on a graph.
+ */
+public class PruneResult {
+
+    private final int verticesRemoved;
+    private final int edgesRemoved;
+    private final long bytesReclaimed;
+
+    // Abstraction function:
+    //   Reports that a prune removed verticesRemoved vertices and edgesRemoved
+    //   edges, freeing about bytesReclaimed bytes of heap.
+    // Representation invariant:
+    //   all fields >= 0
+    // Safety from rep exposure:
+    //   All fields are private, final and primitive.
+
+    /**
+     * Creates a prune summary.
+     * @param verticesRemoved number of vertices removed, nonnegative
+     * @param edgesRemoved number of edges removed, nonnegative
+     * @param bytesReclaimed estimated bytes freed, nonnegative
+     */
+    public PruneResult(int verticesRemoved, int edgesRemoved, long bytesReclaimed) {
+        if (verticesRemoved < 0 || edgesRemoved < 0 || bytesReclaimed < 0) {
+            throw new IllegalArgumentException("Prune counts cannot be negative");
+        }
+        this.verticesRemoved = verticesRemoved;
+        this.edgesRemoved = edgesRemoved;
+        this.bytesReclaimed = bytesReclaimed;
+    }
+
+    /**
+     * @return number of vertices removed
+     */
+    public int verticesRemoved() {
+        return verticesRemoved;
+    }
+
+    /**
+     * @return number of edges removed, including edges of removed vertices
+     */
+    public int edgesRemoved() {
+        return edgesRemoved;
+    }
+
+    /**
+     * @return estimated number of heap bytes freed by the removals
+     */
+    public long bytesReclaimed() {
+        return bytesReclaimed;
+    }
+
+    @Override
+    public String toString() {
+        return "removed " + verticesRemoved + " vertices and " + edgesRemoved
+                + " edges, reclaimed ~" + bytesReclaimed + " bytes";
+    }
+}
@@ -0,0 +1,130 @@
+package graph;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * The read operations of a weighted directed graph with labeled vertices.
+ *
+ * <p>Graph implements this interface along with its mutators. Graphs that
+ * cannot be modified, such as indexes built for fast traversal or graphs
+ * computed on demand, implement only this interface, and code that only
+ * reads a graph should accept it.
+ *
+ * <p>Every edge has a positive weight; there is at most one edge from a
+ * source to a target.
+ *
+ * @param <L> type of vertex labels, must be immutable
+ */
+public interface ReadableGraph<L> {
+
+    /**
+     * @return the set of vertices of this graph; may be a view that is not
+     *         safe to modify
+     */
+    Set<L> vertices();
+
+    /**
+     * @param source a label
+     * @return map from each target of an edge out of source to its weight;
+     *         empty if source is not a vertex
+     */
+    Map<L, Integer> targets(L source);
+
+    /**
+     * @param target a label
+     * @return map from each source of an edge into target to its weight;
+     *         empty if target is not a vertex
+     */
+    Map<L, Integer> sources(L target);
+
+    /**
+     * Get the weight of one edge. The default looks the target up in
+     * targets(source); implementations override it when they can find one edge
+     * more cheaply.
+     *
+     * @param source a label
+     * @param target a label
+     * @return weight of the edge from source to target, or 0 if there is none
+     */
+    default int weight(L source, L target) {
+        return targets(source).getOrDefault(target, 0);
+    }
+
+    /**
+     * Pass every vertex to action.
+     * @param action called once per vertex
+     */
+    void forEachVertex(Consumer<? super L> action);
+
+    /**
+     * Pass every edge out of source to action, as (target, weight).
+     * @param source a label
+     * @param action called once per edge out of source
+     */
+    void forEachTarget(L source, ObjIntConsumer<? super L> action);
+
+    /**
+     * Pass every edge into target to action, as (source, weight).
+     * @param target a label
+     * @param action called once per edge into target
+     */
+    void forEachSource(L target, ObjIntConsumer<? super L> action);
+
+    /**
+     * Pass every edge of the graph to action, as (source, target, weight).
+     * The default calls forEachTarget once per vertex; implementations
+     * override it when they can visit all edges in one pass over their
+     * representation.
+     *
+     * @param action called once per edge
+     */
+    default void forEachEdge(EdgeConsumer<? super L> action) {
+        forEachVertex(source -> forEachTarget(source, (target, weight) -> action.accept(source, target, weight)));
+    }
+
+    /**
+     * Get the heaviest edges out of a vertex.
+     *
+     * @param source a label
+     * @param k maximum number of targets to return, nonnegative
+     * @return unmodifiable map of at most k targets of source to edge weights,
+     *         iterating from heaviest to lightest
+     */
+    Map<L, Integer> topTargets(L source, int k);
+
+    /**
+     * Get the heaviest edges into a vertex.
+     *
+     * @param target a label
+     * @param k maximum number of sources to return, nonnegative
+     * @return unmodifiable map of at most k sources of target to edge weights,
+     *         iterating from heaviest to lightest
+     */
+    Map<L, Integer> topSources(L target, int k);
+
+    /**
+     * Estimate the heap held by this graph.
+     *
+     * @return vertex and edge counts and estimated bytes of the representation
+     */
+    MemoryStats memoryStats();
+
+    /**
+     * An operation on one edge of a graph.
+     *
+     * @param <L> type of vertex labels
+     */
+    @FunctionalInterface
+    interface EdgeConsumer<L> {
+
+        /**
+         * @param source source of the edge
+         * @param target target of the edge
+         * @param weight weight of the edge, positive
+         */
+        void accept(L source, L target, int weight);
+    }
+}
@@ -0,0 +1,142 @@
+package graph;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A lazily built, bounded cache of each vertex's adjacency sorted by
+ * descending weight, used to answer top-k neighbor queries in O(k) after the
+ * first query for a vertex.
+ *
+ * <p>The cache holds at most maxEntries entries, counting each cached vertex
+ * as one entry plus one per neighbor, and evicts the least recently queried
+ * vertices to stay within it; a single adjacency larger than the bound is
+ * still cached until the next query of another vertex evicts it.
+ *
+ * <p>The owning graph must invalidate a vertex whenever its adjacency changes.
+ * Queries may run concurrently with each other, but not with graph mutation.
+ *
+ * @param <L> type of vertex labels
+ */
+final class SortedAdjacencyIndex<L> {
+
+    /** Default bound on cached entries, about 2 MB of cached adjacency. */
+    static final int DEFAULT_MAX_ENTRIES = 1 << 16;
+
+    private final int maxEntries;
+    private final LinkedHashMap<L, List<Map.Entry<L, Integer>>> sorted = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedEntries;
+
+    // Abstraction function:
+    //   sorted.get(v) is the adjacency of v, as last loaded, ordered by descending weight;
+    //   a vertex missing from sorted has not been queried since it was last invalidated
+    //   or evicted. sorted iterates from least to most recently queried.
+    // Representation invariant:
+    //   every cached list is sorted by descending weight and is unmodifiable
+    //   cachedEntries is the sum over cached vertices of 1 + adjacency size
+    //   cachedEntries <= maxEntries, unless sorted holds a single vertex
+    // Safety from rep exposure:
+    //   cached lists are unmodifiable and hold immutable entries; top() returns a fresh map.
+    // Thread safety argument:
+    //   sorted and cachedEntries are only accessed while holding the lock on sorted;
+    //   sorting happens outside the lock, on a list no other thread can see.
+
+    /**
+     * Make an empty index bounded by DEFAULT_MAX_ENTRIES.
+     */
+    SortedAdjacencyIndex() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Make an empty index.
+     * @param maxEntries most entries to cache, must be positive
+     */
+    SortedAdjacencyIndex(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Cache bound must be positive");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Get the heaviest neighbors of a vertex.
+     *
+     * @param vertex vertex to query
+     * @param k maximum number of neighbors to return, nonnegative
+     * @param adjacency loads the full neighbor-to-weight map of a vertex on a cache miss
+     * @return unmodifiable map of at most k neighbors to weights, iterating in
+     *         descending weight order
+     */
+    Map<L, Integer> top(L vertex, int k, Function<L, Map<L, Integer>> adjacency) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative");
+        }
+        List<Map.Entry<L, Integer>> entries;
+        synchronized (sorted) {
+            entries = sorted.get(vertex);
+        }
+        if (entries == null) {
+            entries = sortByWeight(adjacency.apply(vertex));
+            cache(vertex, entries);
+        }
+        Map<L, Integer> result = new LinkedHashMap<>();
+        for (int i = 0; i < Math.min(k, entries.size()); i++) {
+            result.put(entries.get(i).getKey(), entries.get(i).getValue());
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private void cache(L vertex, List<Map.Entry<L, Integer>> entries) {
+        synchronized (sorted) {
+            List<Map.Entry<L, Integer>> replaced = sorted.put(vertex, entries);
+            if (replaced != null) {
+                cachedEntries -= 1 + replaced.size();
+            }
+            cachedEntries += 1 + entries.size();
+            Iterator<List<Map.Entry<L, Integer>>> eldest = sorted.values().iterator();
+            while (cachedEntries > maxEntries && sorted.size() > 1) {
+                cachedEntries -= 1 + eldest.next().size();
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Forget the cached adjacency of a vertex.
+     * @param vertex vertex whose adjacency changed
+     */
+    void invalidate(L vertex) {
+        synchronized (sorted) {
+            List<Map.Entry<L, Integer>> removed = sorted.remove(vertex);
+            if (removed != null) {
+                cachedEntries -= 1 + removed.size();
+            }
+        }
+    }
+
+    /**
+     * Forget every cached adjacency.
+     */
+    void clear() {
+        synchronized (sorted) {
+            sorted.clear();
+            cachedEntries = 0;
+        }
+    }
+
+    private static <L> List<Map.Entry<L, Integer>> sortByWeight(Map<L, Integer> adjacency) {
+        List<Map.Entry<L, Integer>> entries = new ArrayList<>(adjacency.size());
+        for (Map.Entry<L, Integer> entry : adjacency.entrySet()) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue()));
+        }
+        entries.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+        return Collections.unmodifiableList(entries);
+    }
+}
@@ -0,0 +1,114 @@
+package graph;
+
+import java.util.Locale;
+
+/**
+ * How much of a representation invariant checkRep() verifies.
+ *
+ * <p>Rep checks are assertions, so nothing is checked unless assertions are
+ * enabled with -ea. With assertions on, the level is read from the system
+ * property graph.validation (off, incremental, sampled or full; default
+ * sampled), and the sampling interval from graph.validation.interval (default
+ * 1000). The default keeps every operation's cost proportional to what it
+ * touches, plus an amortized share of the whole representation; tests of
+ * small graphs that want every check can set FULL. Both can be changed at
+ * runtime, for example by a test that loads a large graph. The level applies
+ * to Graph, ConcreteEdgesGraph, ConcreteVerticesGraph and GraphPoet.
+ */
+public enum Validation {
+
+    /** Check nothing. */
+    OFF,
+
+    /**
+     * Check only the vertices and edges touched by each operation, in no more
+     * time than the operation itself takes.
+     */
+    INCREMENTAL,
+
+    /** Check like INCREMENTAL, and check everything once every sampleInterval() checks. */
+    SAMPLED,
+
+    /** Check everything on every check, in time proportional to the whole representation. */
+    FULL;
+
+    private static final boolean ASSERTIONS_ENABLED = assertionsEnabled();
+    private static volatile Validation level = parse(System.getProperty("graph.validation"));
+    private static volatile int sampleInterval = Integer.getInteger("graph.validation.interval", 1000);
+
+    private static boolean assertionsEnabled() {
+        boolean enabled = false;
+        assert enabled = true;
+        return enabled;
+    }
+
+    private static Validation parse(String property) {
+        if (property == null) {
+            return SAMPLED;
+        }
+        try {
+            return valueOf(property.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("graph.validation must be off, incremental, sampled or full, not "
+                    + property, e);
+        }
+    }
+
+    /**
+     * @return the level rep checks run at: OFF if assertions are disabled,
+     *         otherwise the configured level
+     */
+    public static Validation level() {
+        return ASSERTIONS_ENABLED ? level : OFF;
+    }
+
+    /**
+     * Set the level of later rep checks. Has no effect while assertions are disabled.
+     * @param newLevel level to check at
+     */
+    public static void setLevel(Validation newLevel) {
+        if (newLevel == null) {
+            throw new IllegalArgumentException("Validation level cannot be null");
+        }
+        level = newLevel;
+    }
+
+    /**
+     * @return number of checks per full check at level SAMPLED
+     */
+    public static int sampleInterval() {
+        return sampleInterval;
+    }
+
+    /**
+     * @param interval number of checks per full check at level SAMPLED, must be positive
+     */
+    public static void setSampleInterval(int interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Sample interval must be positive");
+        }
+        sampleInterval = interval;
+    }
+
+    /**
+     * @return true iff this level checks the parts of a representation an operation touched
+     */
+    public boolean checksTouched() {
+        return this != OFF;
+    }
+
+    /**
+     * @param checks number of rep checks made so far by the object being checked, including this one
+     * @return true iff this level checks the whole representation on this check
+     */
+    public boolean checksAll(long checks) {
+        switch (this) {
+        case FULL:
+            return true;
+        case SAMPLED:
+            return checks % sampleInterval == 0;
+        default:
+            return false;
+        }
+    }
+}
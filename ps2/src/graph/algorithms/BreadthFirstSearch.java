@@ -0,0 +1,77 @@
+package graph.algorithms;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import graph.ReadableGraph;
+
+/**
+ * Breadth-first search, ignoring edge weights.
+ */
+public final class BreadthFirstSearch {
+
+    private BreadthFirstSearch() {
+        throw new AssertionError("BreadthFirstSearch is not instantiable");
+    }
+
+    /**
+     * Find the vertices reachable from source and the fewest edges needed to
+     * reach each of them.
+     *
+     * @param graph graph to search; snapshotted with {@link CompactGraph#of(ReadableGraph)}
+     * @param source vertex to start from
+     * @return unmodifiable map from every vertex reachable from source, including
+     *         source itself at 0, to its hop distance, iterating in nondecreasing distance
+     * @throws IllegalArgumentException if source is not in graph
+     */
+    public static <L> Map<L, Integer> hops(ReadableGraph<L> graph, L source) {
+        CompactGraph<L> compact = CompactGraph.of(graph);
+        int start = compact.indexOf(source);
+        if (start < 0) {
+            throw new IllegalArgumentException("Source vertex is not in the graph: " + source);
+        }
+        int[] distances = new int[compact.vertexCount()];
+        int[] order = new int[compact.vertexCount()];
+        int reached = search(compact, start, distances, order);
+        Map<L, Integer> result = new LinkedHashMap<>();
+        for (int i = 0; i < reached; i++) {
+            result.put(compact.label(order[i]), distances[order[i]]);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Breadth-first search on a snapshot.
+     *
+     * @param graph graph to search
+     * @param source index of the vertex to start from
+     * @param distances array of length graph.vertexCount(); receives the hop
+     *        distance of each vertex from source, or -1 if it is unreachable
+     * @param order array of length graph.vertexCount(); its first elements
+     *        receive the reached vertices in visiting order
+     * @return number of vertices reached, including source
+     */
+    static int search(CompactGraph<?> graph, int source, int[] distances, int[] order) {
+        Arrays.fill(distances, -1);
+        int[] offsets = graph.outOffsets;
+        int[] targets = graph.outTargets;
+        int head = 0;
+        int tail = 0;
+        distances[source] = 0;
+        order[tail++] = source;
+        while (head < tail) {
+            int u = order[head++];
+            int next = distances[u] + 1;
+            for (int j = offsets[u]; j < offsets[u + 1]; j++) {
+                int v = targets[j];
+                if (distances[v] < 0) {
+                    distances[v] = next;
+                    order[tail++] = v;
+                }
+            }
+        }
+        return tail;
+    }
+}
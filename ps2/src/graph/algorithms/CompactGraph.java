@@ -0,0 +1,375 @@
+package graph.algorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+import graph.Footprint;
+import graph.MemoryStats;
+import graph.ReadableGraph;
+
+/**
+ * Immutable snapshot of a graph in compressed sparse row form: vertices are
+ * numbered 0 to vertexCount() - 1, and the edges out of and into each vertex
+ * are stored in contiguous int arrays.
+ *
+ * <p>The algorithms in this package run on this form. Given any other graph
+ * they take a snapshot first, so callers that run several algorithms on the
+ * same graph should take one snapshot with {@link #of(ReadableGraph)} and pass
+ * it to each of them. A snapshot is a ReadableGraph with no mutators, and it
+ * is safe to read from many threads.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public final class CompactGraph<L> implements ReadableGraph<L> {
+
+    private final List<L> labels;
+    private final Map<L, Integer> ids;
+    final int[] outOffsets;
+    final int[] outTargets;
+    final int[] outWeights;
+    final int[] inOffsets;
+    final int[] inSources;
+    final int[] inWeights;
+
+    // Abstraction function:
+    //   Represents the graph whose vertices are labels.get(0 .. n-1), with an
+    //   edge labels.get(u) -> labels.get(outTargets[j]) of weight outWeights[j]
+    //   for each j in [outOffsets[u], outOffsets[u+1]).
+    //   inOffsets, inSources and inWeights store the same edges grouped by target.
+    // Representation invariant:
+    //   ids.get(labels.get(i)) == i for every i, and ids.size() == labels.size() == n
+    //   outOffsets and inOffsets have length n + 1, start at 0, are nondecreasing,
+    //     and end at the edge count
+    //   every target and source index is in [0, n), every weight is nonnegative
+    //   no vertex has two edges to the same target
+    //   the in-arrays hold exactly the edges of the out-arrays
+    // Safety from rep exposure:
+    //   labels and ids are unmodifiable; the arrays are only read by algorithms
+    //   in this package and never returned; targets() and sources() return new maps.
+    // Thread safety argument:
+    //   all fields are final and never modified after construction.
+
+    private CompactGraph(List<L> labels, Map<L, Integer> ids, int[] outOffsets, int[] outTargets,
+            int[] outWeights) {
+        this.labels = Collections.unmodifiableList(labels);
+        this.ids = Collections.unmodifiableMap(ids);
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.outWeights = outWeights;
+
+        // transpose by counting sort on target
+        int n = labels.size();
+        int edges = outTargets.length;
+        this.inOffsets = new int[n + 1];
+        for (int target : outTargets) {
+            inOffsets[target + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+        this.inSources = new int[edges];
+        this.inWeights = new int[edges];
+        int[] next = Arrays.copyOf(inOffsets, n);
+        for (int u = 0; u < n; u++) {
+            for (int j = outOffsets[u]; j < outOffsets[u + 1]; j++) {
+                int slot = next[outTargets[j]]++;
+                inSources[slot] = u;
+                inWeights[slot] = outWeights[j];
+            }
+        }
+        checkRep();
+    }
+
+    private void checkRep() {
+        int n = labels.size();
+        assert ids.size() == n;
+        assert outOffsets.length == n + 1 && inOffsets.length == n + 1;
+        assert outOffsets[0] == 0 && outOffsets[n] == outTargets.length;
+        assert inOffsets[0] == 0 && inOffsets[n] == inSources.length;
+        assert outTargets.length == outWeights.length && inSources.length == outTargets.length;
+        assert checkTargets();
+    }
+
+    /* Check every vertex's edges, in O(V + E) time; true if no assertion fails. */
+    private boolean checkTargets() {
+        int n = labels.size();
+        for (int i = 0; i < n; i++) {
+            assert ids.get(labels.get(i)) == i : "label index out of sync: " + labels.get(i);
+        }
+        // seenFrom[v] == u + 1 once an edge u -> v has been seen
+        int[] seenFrom = new int[n];
+        for (int u = 0; u < n; u++) {
+            assert outOffsets[u] <= outOffsets[u + 1] && inOffsets[u] <= inOffsets[u + 1] : "offsets decrease";
+            for (int j = outOffsets[u]; j < outOffsets[u + 1]; j++) {
+                int v = outTargets[j];
+                assert v >= 0 && v < n : "target index out of range";
+                assert outWeights[j] >= 0 : "negative weight";
+                assert seenFrom[v] != u + 1 : "duplicate edge " + labels.get(u) + " -> " + labels.get(v);
+                seenFrom[v] = u + 1;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Take a snapshot of a graph. Later changes to graph are not reflected in
+     * the snapshot. If forEachEdge visits the same edge more than once, the
+     * snapshot keeps one edge with the last weight visited, as repeated calls
+     * to Graph.set would.
+     *
+     * @param graph graph to copy, in one forEachVertex and one forEachEdge pass
+     * @return graph itself if it is already a CompactGraph, otherwise an
+     *         equal snapshot numbering vertices in the order forEachVertex visits them
+     * @throws IllegalStateException if forEachEdge visits an endpoint that
+     *         forEachVertex did not
+     */
+    public static <L> CompactGraph<L> of(ReadableGraph<L> graph) {
+        if (graph instanceof CompactGraph) {
+            return (CompactGraph<L>) graph;
+        }
+        List<L> labels = new ArrayList<>();
+        Map<L, Integer> ids = new HashMap<>();
+        graph.forEachVertex(vertex -> {
+            ids.put(vertex, labels.size());
+            labels.add(vertex);
+        });
+        int n = labels.size();
+        EdgeBuffer visited = new EdgeBuffer();
+        graph.forEachEdge((source, target, weight) -> visited.add(id(ids, source), id(ids, target), weight));
+
+        // group by source with a stable counting sort, so later visits stay later
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < visited.size; i++) {
+            offsets[visited.sources[i] + 1]++;
+        }
+        for (int u = 0; u < n; u++) {
+            offsets[u + 1] += offsets[u];
+        }
+        int[] targets = new int[visited.size];
+        int[] weights = new int[visited.size];
+        int[] next = Arrays.copyOf(offsets, n);
+        for (int i = 0; i < visited.size; i++) {
+            int slot = next[visited.sources[i]]++;
+            targets[slot] = visited.targets[i];
+            weights[slot] = visited.weights[i];
+        }
+
+        // merge repeated targets of each source in place, keeping the last weight;
+        // while compacting u, slotFrom[v] - 1 is the slot of an edge u -> v if it is at least start
+        int[] slotFrom = new int[n];
+        int size = 0;
+        for (int u = 0; u < n; u++) {
+            int start = size;
+            for (int j = offsets[u]; j < offsets[u + 1]; j++) {
+                int v = targets[j];
+                int slot = slotFrom[v] - 1;
+                if (slot >= start) {
+                    weights[slot] = weights[j];
+                } else {
+                    slotFrom[v] = size + 1;
+                    targets[size] = v;
+                    weights[size] = weights[j];
+                    size++;
+                }
+            }
+            offsets[u] = start;
+        }
+        offsets[n] = size;
+        return new CompactGraph<>(labels, ids, offsets,
+                Arrays.copyOf(targets, size), Arrays.copyOf(weights, size));
+    }
+
+    private static <L> int id(Map<L, Integer> ids, L vertex) {
+        Integer id = ids.get(vertex);
+        if (id == null) {
+            throw new IllegalStateException("edge endpoint missing from vertices(): " + vertex);
+        }
+        return id;
+    }
+
+    /* Growable parallel int arrays of edge sources, targets and weights. */
+    private static final class EdgeBuffer {
+        int[] sources = new int[16];
+        int[] targets = new int[16];
+        int[] weights = new int[16];
+        int size;
+
+        void add(int source, int target, int weight) {
+            if (size == targets.length) {
+                sources = Arrays.copyOf(sources, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            sources[size] = source;
+            targets[size] = target;
+            weights[size] = weight;
+            size++;
+        }
+    }
+
+    /**
+     * @return number of vertices
+     */
+    public int vertexCount() {
+        return labels.size();
+    }
+
+    /**
+     * @return number of edges
+     */
+    public int edgeCount() {
+        return outTargets.length;
+    }
+
+    /**
+     * @param vertex a label
+     * @return index of vertex in [0, vertexCount()), or -1 if it is not in the graph
+     */
+    public int indexOf(L vertex) {
+        Integer id = ids.get(vertex);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param index index of a vertex, in [0, vertexCount())
+     * @return label of that vertex
+     */
+    public L label(int index) {
+        return labels.get(index);
+    }
+
+    @Override
+    public Set<L> vertices() {
+        return ids.keySet();
+    }
+
+    @Override
+    public Map<L, Integer> targets(L source) {
+        return adjacency(source, outOffsets, outTargets, outWeights);
+    }
+
+    @Override
+    public Map<L, Integer> sources(L target) {
+        return adjacency(target, inOffsets, inSources, inWeights);
+    }
+
+    private Map<L, Integer> adjacency(L vertex, int[] offsets, int[] neighbors, int[] weights) {
+        int v = indexOf(vertex);
+        if (v < 0) {
+            return Collections.emptyMap();
+        }
+        Map<L, Integer> result = new LinkedHashMap<>();
+        for (int j = offsets[v]; j < offsets[v + 1]; j++) {
+            result.put(labels.get(neighbors[j]), weights[j]);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    public void forEachVertex(Consumer<? super L> action) {
+        labels.forEach(action);
+    }
+
+    @Override
+    public void forEachTarget(L source, ObjIntConsumer<? super L> action) {
+        forEach(source, outOffsets, outTargets, outWeights, action);
+    }
+
+    @Override
+    public void forEachSource(L target, ObjIntConsumer<? super L> action) {
+        forEach(target, inOffsets, inSources, inWeights, action);
+    }
+
+    private void forEach(L vertex, int[] offsets, int[] neighbors, int[] weights, ObjIntConsumer<? super L> action) {
+        int v = indexOf(vertex);
+        if (v < 0) {
+            return;
+        }
+        for (int j = offsets[v]; j < offsets[v + 1]; j++) {
+            action.accept(labels.get(neighbors[j]), weights[j]);
+        }
+    }
+
+    @Override
+    public void forEachEdge(EdgeConsumer<? super L> action) {
+        for (int u = 0; u < labels.size(); u++) {
+            L source = labels.get(u);
+            for (int j = outOffsets[u]; j < outOffsets[u + 1]; j++) {
+                action.accept(source, labels.get(outTargets[j]), outWeights[j]);
+            }
+        }
+    }
+
+    /**
+     * Get the heaviest edges out of a vertex, by sorting its edges on every
+     * call in O(d log d) time for a vertex of out-degree d.
+     */
+    @Override
+    public Map<L, Integer> topTargets(L source, int k) {
+        return top(source, k, outOffsets, outTargets, outWeights);
+    }
+
+    /**
+     * Get the heaviest edges into a vertex, by sorting its edges on every
+     * call in O(d log d) time for a vertex of in-degree d.
+     */
+    @Override
+    public Map<L, Integer> topSources(L target, int k) {
+        return top(target, k, inOffsets, inSources, inWeights);
+    }
+
+    private Map<L, Integer> top(L vertex, int k, int[] offsets, int[] neighbors, int[] weights) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative");
+        }
+        int v = indexOf(vertex);
+        if (v < 0 || k == 0) {
+            return Collections.emptyMap();
+        }
+        List<Integer> slots = new ArrayList<>(offsets[v + 1] - offsets[v]);
+        for (int j = offsets[v]; j < offsets[v + 1]; j++) {
+            slots.add(j);
+        }
+        slots.sort((a, b) -> Integer.compare(weights[b], weights[a]));
+        Map<L, Integer> result = new LinkedHashMap<>();
+        for (int j : slots.subList(0, Math.min(k, slots.size()))) {
+            result.put(labels.get(neighbors[j]), weights[j]);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Estimate the heap held by this snapshot: labels are counted as shared
+     * with the graph it was taken from, so only references to them are included.
+     */
+    @Override
+    public MemoryStats memoryStats() {
+        int n = labels.size();
+        int edges = outTargets.length;
+        long references = (long) Footprint.REFERENCE * n;
+        long offsets = 2 * intArray(n + 1);
+        long neighbors = 2 * intArray(edges);
+        long weights = 2 * intArray(edges);
+        long index = Footprint.ARRAY_LIST + Footprint.ARRAY_HEADER + Footprint.HASH_MAP;
+        for (int i = 0; i < n; i++) {
+            index += Footprint.weightedEntry(i);
+        }
+        return new MemoryStats(n, edges, references, offsets + neighbors + index, weights, 0);
+    }
+
+    private static long intArray(int length) {
+        return Footprint.align(Footprint.ARRAY_HEADER + (long) Integer.BYTES * length);
+    }
+
+    @Override public String toString() {
+        return "CompactGraph(" + labels.size() + " vertices, " + outTargets.length + " edges)";
+    }
+}
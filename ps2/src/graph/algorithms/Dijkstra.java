@@ -0,0 +1,88 @@
+package graph.algorithms;
+
+import java.util.Arrays;
+
+import graph.ReadableGraph;
+
+/**
+ * Dijkstra's single-source shortest paths, where the length of an edge is
+ * its weight and the length of a path is the sum of its edge weights.
+ *
+ * <p>Runs in O((V + E) log V) on a primitive indexed binary heap, so the
+ * search itself allocates only arrays proportional to the vertex count.
+ * In an affinity graph a heavier edge means a stronger affinity, so shortest
+ * paths follow the rarest adjacencies; invert weights first if the
+ * strongest chain of affinities is wanted instead.
+ */
+public final class Dijkstra {
+
+    private Dijkstra() {
+        throw new AssertionError("Dijkstra is not instantiable");
+    }
+
+    /**
+     * Find shortest paths from source to every vertex.
+     *
+     * @param graph graph to search; snapshotted with {@link CompactGraph#of(ReadableGraph)}
+     * @param source vertex the paths start from
+     * @return shortest paths from source
+     * @throws IllegalArgumentException if source is not in graph
+     */
+    public static <L> ShortestPaths<L> shortestPaths(ReadableGraph<L> graph, L source) {
+        CompactGraph<L> compact = CompactGraph.of(graph);
+        int start = compact.indexOf(source);
+        if (start < 0) {
+            throw new IllegalArgumentException("Source vertex is not in the graph: " + source);
+        }
+        int n = compact.vertexCount();
+        long[] distances = new long[n];
+        int[] predecessors = new int[n];
+        search(compact, start, distances, predecessors, new IndexedMinHeap(n));
+        return new ShortestPaths<>(compact, start, distances, predecessors);
+    }
+
+    /**
+     * Dijkstra's algorithm on a snapshot.
+     *
+     * @param graph graph to search
+     * @param source index of the vertex paths start from
+     * @param distances array of length graph.vertexCount(); receives the length
+     *        of a shortest path to each vertex, or -1 if it is unreachable
+     * @param predecessors array of length graph.vertexCount(); receives the
+     *        vertex before each vertex on its shortest path, or -1 for the
+     *        source and unreachable vertices
+     * @param heap empty heap with capacity graph.vertexCount(); left empty
+     * @return number of vertices reached, including source
+     */
+    static int search(CompactGraph<?> graph, int source, long[] distances, int[] predecessors,
+            IndexedMinHeap heap) {
+        Arrays.fill(distances, -1);
+        Arrays.fill(predecessors, -1);
+        int[] offsets = graph.outOffsets;
+        int[] targets = graph.outTargets;
+        int[] weights = graph.outWeights;
+        boolean[] settled = new boolean[distances.length];
+        int reached = 0;
+        heap.insertOrDecrease(source, 0);
+        distances[source] = 0;
+        while (!heap.isEmpty()) {
+            long distance = heap.minKey();
+            int u = heap.pollMin();
+            settled[u] = true;
+            reached++;
+            for (int j = offsets[u]; j < offsets[u + 1]; j++) {
+                int v = targets[j];
+                if (settled[v]) {
+                    continue;
+                }
+                long candidate = distance + weights[j];
+                if (distances[v] < 0 || candidate < distances[v]) {
+                    distances[v] = candidate;
+                    predecessors[v] = u;
+                    heap.insertOrDecrease(v, candidate);
+                }
+            }
+        }
+        return reached;
+    }
+}
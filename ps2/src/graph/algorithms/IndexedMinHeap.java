@@ -0,0 +1,131 @@
+package graph.algorithms;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of int items in [0, capacity) keyed by long priorities,
+ * supporting decrease-key in O(log n). Items and keys are kept in primitive
+ * arrays, so the heap allocates nothing after construction.
+ */
+class IndexedMinHeap {
+
+    private final int[] heap;
+    private final int[] position;
+    private final long[] keys;
+    private int size;
+
+    // Abstraction function:
+    //   Represents the set of items heap[0 .. size-1], where item i has priority keys[i].
+    // Representation invariant:
+    //   position[heap[p]] == p for every p < size, and position[i] == -1 for
+    //     items not in the heap
+    //   keys[heap[p]] >= keys[heap[(p - 1) / 2]] for every 0 < p < size
+    // Safety from rep exposure:
+    //   all fields are private arrays that are never returned.
+
+    /**
+     * Create an empty heap.
+     * @param capacity items allowed are 0 to capacity - 1
+     */
+    IndexedMinHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.position = new int[capacity];
+        this.keys = new long[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    /**
+     * @return true iff the heap has no items
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param item an item in [0, capacity)
+     * @return true iff item is in the heap
+     */
+    boolean contains(int item) {
+        return position[item] >= 0;
+    }
+
+    /**
+     * Insert item with priority key, or lower its priority to key if it is
+     * already in the heap with a higher one.
+     * @param item an item in [0, capacity)
+     * @param key its priority
+     */
+    void insertOrDecrease(int item, long key) {
+        if (position[item] < 0) {
+            heap[size] = item;
+            position[item] = size;
+            keys[item] = key;
+            siftUp(size++);
+        } else if (key < keys[item]) {
+            keys[item] = key;
+            siftUp(position[item]);
+        }
+    }
+
+    /**
+     * @return priority of the item that pollMin() would return; requires a nonempty heap
+     */
+    long minKey() {
+        return keys[heap[0]];
+    }
+
+    /**
+     * Remove the item with the lowest priority.
+     * @return that item; requires a nonempty heap
+     */
+    int pollMin() {
+        int min = heap[0];
+        position[min] = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    private void siftUp(int p) {
+        int item = heap[p];
+        long key = keys[item];
+        while (p > 0) {
+            int parent = (p - 1) >>> 1;
+            int parentItem = heap[parent];
+            if (keys[parentItem] <= key) {
+                break;
+            }
+            heap[p] = parentItem;
+            position[parentItem] = p;
+            p = parent;
+        }
+        heap[p] = item;
+        position[item] = p;
+    }
+
+    private void siftDown(int p) {
+        int item = heap[p];
+        long key = keys[item];
+        int half = size >>> 1;
+        while (p < half) {
+            int child = 2 * p + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) {
+                child = right;
+            }
+            int childItem = heap[child];
+            if (key <= keys[childItem]) {
+                break;
+            }
+            heap[p] = childItem;
+            position[childItem] = p;
+            p = child;
+        }
+        heap[p] = item;
+        position[item] = p;
+    }
+}
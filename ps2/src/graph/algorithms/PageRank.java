@@ -0,0 +1,263 @@
+package graph.algorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import graph.ReadableGraph;
+
+/**
+ * Weighted PageRank by power iteration.
+ *
+ * <p>A random surfer follows an edge out of the current vertex with
+ * probability proportional to its weight, or with probability 1 - damping
+ * (and always, from a vertex without weighted outgoing edges) jumps to a
+ * vertex chosen uniformly. The rank of a vertex is the long-run fraction of
+ * time the surfer spends there; ranks sum to 1.
+ *
+ * <p>Each iteration pulls rank along incoming edges, so every vertex is
+ * written by exactly one thread, and the vertices are split into contiguous
+ * ranges computed in parallel without locks. Ranges hold equal shares of
+ * vertices plus incoming edges, so a few hubs with most of the edges do not
+ * leave one thread doing most of the work.
+ */
+public final class PageRank {
+
+    /** Damping factor of the original PageRank paper. */
+    public static final double DEFAULT_DAMPING = 0.85;
+
+    /** Iterations stop once ranks change by less than this much in total. */
+    public static final double DEFAULT_TOLERANCE = 1e-9;
+
+    /** Iterations stop after this many even if ranks still change. */
+    public static final int DEFAULT_MAX_ITERATIONS = 100;
+
+    /* Smallest range of vertices worth handing to its own task. */
+    private static final int MIN_RANGE = 4096;
+
+    private PageRank() {
+        throw new AssertionError("PageRank is not instantiable");
+    }
+
+    /**
+     * Compute ranks with the default damping, tolerance and iteration limit,
+     * using one thread per available processor.
+     *
+     * @param graph graph to rank; snapshotted with {@link CompactGraph#of(ReadableGraph)}
+     * @return unmodifiable map from every vertex to its rank
+     */
+    public static <L> Map<L, Double> ranks(ReadableGraph<L> graph) {
+        return ranks(graph, DEFAULT_DAMPING, DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Compute ranks.
+     *
+     * @param graph graph to rank; snapshotted with {@link CompactGraph#of(ReadableGraph)}
+     * @param damping probability of following an edge, in [0, 1]
+     * @param tolerance stop once the L1 distance between successive rank vectors is below this
+     * @param maxIterations stop after this many iterations, must be positive
+     * @param parallelism number of threads, must be positive
+     * @return unmodifiable map from every vertex to its rank
+     */
+    public static <L> Map<L, Double> ranks(ReadableGraph<L> graph, double damping, double tolerance,
+            int maxIterations, int parallelism) {
+        CompactGraph<L> compact = CompactGraph.of(graph);
+        double[] ranks = iterate(compact, damping, tolerance, maxIterations, parallelism);
+        Map<L, Double> result = new HashMap<>();
+        for (int v = 0; v < ranks.length; v++) {
+            result.put(compact.label(v), ranks[v]);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Power iteration on a snapshot.
+     *
+     * @param graph graph to rank
+     * @param damping probability of following an edge, in [0, 1]
+     * @param tolerance stop once the L1 distance between successive rank vectors is below this
+     * @param maxIterations stop after this many iterations, must be positive
+     * @param parallelism number of threads, must be positive
+     * @return rank of each vertex by index
+     */
+    static double[] iterate(CompactGraph<?> graph, double damping, double tolerance,
+            int maxIterations, int parallelism) {
+        if (damping < 0 || damping > 1 || maxIterations <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Invalid PageRank parameters");
+        }
+        int n = graph.vertexCount();
+        if (n == 0) {
+            return new double[0];
+        }
+        double[] outWeight = new double[n];
+        for (int u = 0; u < n; u++) {
+            for (int j = graph.outOffsets[u]; j < graph.outOffsets[u + 1]; j++) {
+                outWeight[u] += graph.outWeights[j];
+            }
+        }
+        Iteration iteration = new Iteration(graph, damping, outWeight);
+        Arrays.fill(iteration.ranks, 1.0 / n);
+
+        int tasks = Math.max(1, Math.min(parallelism, n / MIN_RANGE));
+        if (tasks == 1) {
+            for (int i = 0; i < maxIterations; i++) {
+                double dangling = iteration.scatter(0, n);
+                double change = iteration.gather(0, n, dangling);
+                iteration.swap();
+                if (change < tolerance) {
+                    break;
+                }
+            }
+            return iteration.ranks;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(tasks);
+        try {
+            List<Callable<Double>> scatters = new ArrayList<>();
+            for (int t = 0; t < tasks; t++) {
+                int from = (int) ((long) n * t / tasks);
+                int to = (int) ((long) n * (t + 1) / tasks);
+                scatters.add(() -> iteration.scatter(from, to));
+            }
+            int[] bounds = balancedBounds(graph.inOffsets, tasks);
+            for (int i = 0; i < maxIterations; i++) {
+                double dangling = sum(pool.invokeAll(scatters));
+                List<Callable<Double>> gathers = new ArrayList<>();
+                for (int t = 0; t < tasks; t++) {
+                    int from = bounds[t];
+                    int to = bounds[t + 1];
+                    gathers.add(() -> iteration.gather(from, to, dangling));
+                }
+                double change = sum(pool.invokeAll(gathers));
+                iteration.swap();
+                if (change < tolerance) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while computing PageRank", e);
+        } finally {
+            pool.shutdownNow();
+        }
+        return iteration.ranks;
+    }
+
+    /**
+     * Split vertices into contiguous ranges of about equal gather cost, counting
+     * one per vertex and one per incoming edge.
+     *
+     * @param inOffsets offsets of each vertex's incoming edges, of length n + 1
+     * @param tasks number of ranges, positive
+     * @return bounds of length tasks + 1, from 0 to n and nondecreasing; range t
+     *         is [bounds[t], bounds[t + 1])
+     */
+    static int[] balancedBounds(int[] inOffsets, int tasks) {
+        int n = inOffsets.length - 1;
+        long total = (long) n + inOffsets[n];
+        int[] bounds = new int[tasks + 1];
+        bounds[tasks] = n;
+        for (int t = 1; t < tasks; t++) {
+            // smallest v whose prefix cost v + inOffsets[v] reaches t / tasks of the total
+            long goal = total * t / tasks;
+            int low = bounds[t - 1];
+            int high = n;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (mid + (long) inOffsets[mid] < goal) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            bounds[t] = low;
+        }
+        return bounds;
+    }
+
+    private static double sum(List<Future<Double>> parts) throws InterruptedException {
+        double sum = 0;
+        for (Future<Double> part : parts) {
+            try {
+                sum += part.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("PageRank task failed", e.getCause());
+            }
+        }
+        return sum;
+    }
+
+    /*
+     * Rank vectors of one power iteration. scatter and gather each touch only
+     * their own range of vertices, so ranges run in parallel; invokeAll
+     * orders each phase after the previous one.
+     */
+    private static final class Iteration {
+        final CompactGraph<?> graph;
+        final double damping;
+        final double[] outWeight;
+        double[] ranks;
+        double[] next;
+        final double[] share;
+
+        Iteration(CompactGraph<?> graph, double damping, double[] outWeight) {
+            int n = graph.vertexCount();
+            this.graph = graph;
+            this.damping = damping;
+            this.outWeight = outWeight;
+            this.ranks = new double[n];
+            this.next = new double[n];
+            this.share = new double[n];
+        }
+
+        /* Compute rank per unit of out-weight for [from, to); return their dangling rank. */
+        double scatter(int from, int to) {
+            double dangling = 0;
+            for (int u = from; u < to; u++) {
+                if (outWeight[u] > 0) {
+                    share[u] = ranks[u] / outWeight[u];
+                } else {
+                    share[u] = 0;
+                    dangling += ranks[u];
+                }
+            }
+            return dangling;
+        }
+
+        /* Compute next ranks of [from, to); return their L1 change. */
+        double gather(int from, int to, double dangling) {
+            int n = ranks.length;
+            double base = (1 - damping) / n + damping * dangling / n;
+            int[] offsets = graph.inOffsets;
+            int[] sources = graph.inSources;
+            int[] weights = graph.inWeights;
+            double change = 0;
+            for (int v = from; v < to; v++) {
+                double incoming = 0;
+                for (int j = offsets[v]; j < offsets[v + 1]; j++) {
+                    incoming += share[sources[j]] * weights[j];
+                }
+                double rank = base + damping * incoming;
+                change += Math.abs(rank - ranks[v]);
+                next[v] = rank;
+            }
+            return change;
+        }
+
+        void swap() {
+            double[] previous = ranks;
+            ranks = next;
+            next = previous;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package graph.algorithms;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable result of a single-source shortest path search: the length of
+ * the shortest path from the source to every vertex, and one such path.
+ *
+ * @param <L> type of vertex labels
+ */
+public final class ShortestPaths<L> {
+
+    private final CompactGraph<L> graph;
+    private final int source;
+    private final long[] distances;
+    private final int[] predecessors;
+
+    // Abstraction function:
+    //   Paths in graph from graph.label(source): vertex v is reachable iff
+    //   distances[v] >= 0, at distance distances[v], and a shortest path to v
+    //   ends with the edge predecessors[v] -> v.
+    // Representation invariant:
+    //   distances and predecessors have length graph.vertexCount()
+    //   distances[source] == 0 and predecessors[source] == -1
+    //   predecessors[v] == -1 iff v == source or distances[v] == -1
+    // Safety from rep exposure:
+    //   arrays are private and never returned; paths are returned as new lists.
+
+    ShortestPaths(CompactGraph<L> graph, int source, long[] distances, int[] predecessors) {
+        this.graph = graph;
+        this.source = source;
+        this.distances = distances;
+        this.predecessors = predecessors;
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert distances.length == graph.vertexCount() && predecessors.length == distances.length;
+        assert distances[source] == 0 && predecessors[source] == -1;
+    }
+
+    /**
+     * @return the vertex the paths start from
+     */
+    public L source() {
+        return graph.label(source);
+    }
+
+    /**
+     * @param target a vertex
+     * @return true iff there is a path from the source to target
+     */
+    public boolean isReachable(L target) {
+        int v = graph.indexOf(target);
+        return v >= 0 && distances[v] >= 0;
+    }
+
+    /**
+     * @param target a vertex
+     * @return total weight of a shortest path from the source to target, or -1
+     *         if target is unreachable or not in the graph
+     */
+    public long distance(L target) {
+        int v = graph.indexOf(target);
+        return v < 0 ? -1 : distances[v];
+    }
+
+    /**
+     * @param target a vertex
+     * @return vertices of a shortest path from the source to target, starting
+     *         with the source and ending with target, or an empty list if
+     *         target is unreachable or not in the graph
+     */
+    public List<L> path(L target) {
+        int v = graph.indexOf(target);
+        if (v < 0 || distances[v] < 0) {
+            return Collections.emptyList();
+        }
+        List<L> path = new ArrayList<>();
+        for (int u = v; u >= 0; u = predecessors[u]) {
+            path.add(graph.label(u));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    @Override public String toString() {
+        return "ShortestPaths(from " + source() + ")";
+    }
+}
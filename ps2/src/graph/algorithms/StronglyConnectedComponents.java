@@ -0,0 +1,117 @@
+package graph.algorithms;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import graph.ReadableGraph;
+
+/**
+ * Strongly connected components, by Tarjan's algorithm in O(V + E).
+ *
+ * <p>The depth-first search keeps its own stack in int arrays instead of
+ * recursing, so it handles paths of millions of vertices without overflowing
+ * the thread stack.
+ */
+public final class StronglyConnectedComponents {
+
+    private StronglyConnectedComponents() {
+        throw new AssertionError("StronglyConnectedComponents is not instantiable");
+    }
+
+    /**
+     * Partition the vertices of a graph into strongly connected components:
+     * maximal sets in which every vertex has a path to every other.
+     *
+     * @param graph graph to partition; snapshotted with {@link CompactGraph#of(ReadableGraph)}
+     * @return unmodifiable list of the components as unmodifiable sets, in
+     *         reverse topological order: no edge leads from a component to a
+     *         later one
+     */
+    public static <L> List<Set<L>> components(ReadableGraph<L> graph) {
+        CompactGraph<L> compact = CompactGraph.of(graph);
+        int[] componentOf = new int[compact.vertexCount()];
+        int count = componentIds(compact, componentOf);
+        List<Set<L>> components = new ArrayList<>(count);
+        for (int c = 0; c < count; c++) {
+            components.add(new HashSet<>());
+        }
+        for (int v = 0; v < componentOf.length; v++) {
+            components.get(componentOf[v]).add(compact.label(v));
+        }
+        for (int c = 0; c < count; c++) {
+            components.set(c, Collections.unmodifiableSet(components.get(c)));
+        }
+        return Collections.unmodifiableList(components);
+    }
+
+    /**
+     * Tarjan's algorithm on a snapshot.
+     *
+     * @param graph graph to partition
+     * @param componentOf array of length graph.vertexCount(); receives the
+     *        component number of each vertex, numbered in reverse topological order
+     * @return number of components
+     */
+    static int componentIds(CompactGraph<?> graph, int[] componentOf) {
+        int n = graph.vertexCount();
+        int[] offsets = graph.outOffsets;
+        int[] targets = graph.outTargets;
+        int[] index = new int[n];          // discovery order + 1, or 0 if unvisited
+        int[] low = new int[n];
+        int[] nextEdge = new int[n];       // next edge to explore, for vertices on the call stack
+        int[] callStack = new int[n];
+        int[] tarjanStack = new int[n];
+        boolean[] onStack = new boolean[n];
+        int visited = 0;
+        int components = 0;
+        int tarjanTop = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] != 0) {
+                continue;
+            }
+            int callTop = 0;
+            callStack[callTop++] = root;
+            index[root] = low[root] = ++visited;
+            nextEdge[root] = offsets[root];
+            tarjanStack[tarjanTop++] = root;
+            onStack[root] = true;
+
+            while (callTop > 0) {
+                int u = callStack[callTop - 1];
+                if (nextEdge[u] < offsets[u + 1]) {
+                    int v = targets[nextEdge[u]++];
+                    if (index[v] == 0) {
+                        index[v] = low[v] = ++visited;
+                        nextEdge[v] = offsets[v];
+                        tarjanStack[tarjanTop++] = v;
+                        onStack[v] = true;
+                        callStack[callTop++] = v;
+                    } else if (onStack[v]) {
+                        low[u] = Math.min(low[u], index[v]);
+                    }
+                    continue;
+                }
+                // all edges of u explored: return from u
+                callTop--;
+                if (low[u] == index[u]) {
+                    int w;
+                    do {
+                        w = tarjanStack[--tarjanTop];
+                        onStack[w] = false;
+                        componentOf[w] = components;
+                    } while (w != u);
+                    components++;
+                }
+                if (callTop > 0) {
+                    int parent = callStack[callTop - 1];
+                    low[parent] = Math.min(low[parent], low[u]);
+                }
+            }
+        }
+        return components;
+    }
+}
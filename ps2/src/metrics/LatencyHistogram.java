@@ -0,0 +1,125 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe histogram of nanosecond latencies with log-linear buckets, in
+ * the style of HdrHistogram: each power of two is split into 16 equal buckets,
+ * so any recorded value is reported within 1/16 (about 6%) of its true value.
+ * 
+ * <p>Recording never allocates and takes a few atomic increments.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    // Abstraction function:
+    //   Represents a multiset of latencies, where buckets[i] latencies fall in
+    //   [lowerBound(i), lowerBound(i + 1)); count, sum and max summarize them exactly.
+    // Representation invariant:
+    //   sum of buckets == count, outside of concurrent recording
+    // Safety from rep exposure:
+    //   all fields are private and only primitive summaries are returned.
+
+    /**
+     * Record one latency.
+     * @param nanos latency in nanoseconds; negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * @return number of latencies recorded
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * @return mean latency in nanoseconds, or 0 if none were recorded
+     */
+    public long mean() {
+        long n = count.sum();
+        return n == 0 ? 0 : sum.sum() / n;
+    }
+
+    /**
+     * @return largest latency recorded, in nanoseconds
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * @param fraction quantile to report, in [0, 1]
+     * @return approximate latency in nanoseconds at that quantile, or 0 if none were recorded
+     */
+    public long percentile(double fraction) {
+        if (fraction < 0 || fraction > 1) {
+            throw new IllegalArgumentException("Percentile fraction must be in [0, 1]");
+        }
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += buckets.get(i);
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(max(), highestEquivalentValue(i));
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Forget all recorded latencies.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int magnitude = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        int shift = magnitude - SUB_BUCKET_BITS;
+        return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+
+    @Override public String toString() {
+        return "count=" + count() + " p50=" + percentile(0.5) + "ns p99=" + percentile(0.99)
+                + "ns max=" + max() + "ns";
+    }
+}
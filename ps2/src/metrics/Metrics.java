@@ -0,0 +1,139 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Switchable instrumentation of graph and poet hot paths.
+ * 
+ * <p>Instrumented code checks {@link #isOn()} before reading the clock,
+ * so when recording is off each call costs one volatile read and allocates
+ * nothing. Recording starts off unless the JVM is started with
+ * -Dmetrics.enabled=true. Values are read with {@link #snapshot()} or over JMX
+ * after {@link #registerMBean()}.
+ */
+public class Metrics implements MetricsMXBean {
+
+    /** Latency of Graph.set. */
+    public static final LatencyHistogram GRAPH_SET = new LatencyHistogram();
+    /** Latency of Graph.targets. */
+    public static final LatencyHistogram GRAPH_TARGETS = new LatencyHistogram();
+    /** Latency of Graph.sources. */
+    public static final LatencyHistogram GRAPH_SOURCES = new LatencyHistogram();
+    /** Latency of GraphPoet.poem. */
+    public static final LatencyHistogram POEM = new LatencyHistogram();
+
+    /** Words read from corpus files. */
+    public static final LongAdder TOKENIZED_WORDS = new LongAdder();
+    /** Time spent reading corpus files, in nanoseconds. */
+    public static final LongAdder TOKENIZE_NANOS = new LongAdder();
+    /** Adjacent input word pairs for which poem() looked for a bridge. */
+    public static final LongAdder BRIDGE_ATTEMPTS = new LongAdder();
+    /** Adjacent input word pairs for which poem() inserted a bridge. */
+    public static final LongAdder BRIDGE_HITS = new LongAdder();
+
+    private static final String OBJECT_NAME = "metrics:type=Metrics";
+    private static volatile boolean enabled = Boolean.getBoolean("metrics.enabled");
+
+    private Metrics() {
+        // only instantiated as the registered MBean
+    }
+
+    /**
+     * @return true if instrumentation is recording
+     */
+    public static boolean isOn() {
+        return enabled;
+    }
+
+    /**
+     * Start or stop recording. Values recorded so far are kept.
+     * @param on true to start recording, false to stop
+     */
+    public static void setOn(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * @return unmodifiable map from metric name to its current value, in name order
+     */
+    public static Map<String, Long> snapshot() {
+        Map<String, Long> values = new TreeMap<>();
+        putHistogram(values, "graph.set", GRAPH_SET);
+        putHistogram(values, "graph.targets", GRAPH_TARGETS);
+        putHistogram(values, "graph.sources", GRAPH_SOURCES);
+        putHistogram(values, "poet.poem", POEM);
+        long words = TOKENIZED_WORDS.sum();
+        long nanos = TOKENIZE_NANOS.sum();
+        values.put("poet.tokenize.words", words);
+        values.put("poet.tokenize.nanos", nanos);
+        values.put("poet.tokenize.wordsPerSecond", nanos == 0 ? 0 : (long) (words * 1e9 / nanos));
+        long attempts = BRIDGE_ATTEMPTS.sum();
+        long hits = BRIDGE_HITS.sum();
+        values.put("poet.bridge.attempts", attempts);
+        values.put("poet.bridge.hits", hits);
+        values.put("poet.bridge.hitPercent", attempts == 0 ? 0 : hits * 100 / attempts);
+        return Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Forget all recorded values.
+     */
+    public static void resetAll() {
+        GRAPH_SET.reset();
+        GRAPH_TARGETS.reset();
+        GRAPH_SOURCES.reset();
+        POEM.reset();
+        TOKENIZED_WORDS.reset();
+        TOKENIZE_NANOS.reset();
+        BRIDGE_ATTEMPTS.reset();
+        BRIDGE_HITS.reset();
+    }
+
+    /**
+     * Register the metrics with the platform MBean server, if not already registered.
+     */
+    public static synchronized void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new Metrics(), name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register metrics MBean", e);
+        }
+    }
+
+    private static void putHistogram(Map<String, Long> values, String name, LatencyHistogram histogram) {
+        values.put(name + ".count", histogram.count());
+        values.put(name + ".meanNanos", histogram.mean());
+        values.put(name + ".p50Nanos", histogram.percentile(0.50));
+        values.put(name + ".p99Nanos", histogram.percentile(0.99));
+        values.put(name + ".p999Nanos", histogram.percentile(0.999));
+        values.put(name + ".maxNanos", histogram.max());
+    }
+
+    @Override public boolean isEnabled() {
+        return isOn();
+    }
+
+    @Override public void setEnabled(boolean enabled) {
+        setOn(enabled);
+    }
+
+    @Override public Map<String, Long> getValues() {
+        return snapshot();
+    }
+
+    @Override public void reset() {
+        resetAll();
+    }
+}
@@ -0,0 +1,29 @@
+package metrics;
+
+import java.util.Map;
+
+/**
+ * JMX management interface of {@link Metrics}, registered as "metrics:type=Metrics".
+ */
+public interface MetricsMXBean {
+
+    /**
+     * @return true if instrumentation is recording
+     */
+    boolean isEnabled();
+
+    /**
+     * @param enabled true to start recording, false to stop
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * @return current value of every metric, by name
+     */
+    Map<String, Long> getValues();
+
+    /**
+     * Forget all recorded values.
+     */
+    void reset();
+}
@@ -0,0 +1,127 @@
+package poet;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Streams input lines through a GraphPoet in parallel, writing one poem per
+ * input line in input order.
+ *
+ * <p>At most a fixed window of lines per worker is in flight, so memory use
+ * does not grow with the size of the input.
+ */
+public class BatchPoet {
+
+    /** Lines in flight per worker; enough to keep workers busy while the head line finishes. */
+    private static final int WINDOW_PER_WORKER = 64;
+
+    private static final int READ_BUFFER_CHARS = 1 << 16;
+    private static final int WRITE_BUFFER_CHARS = 1 << 20;
+    private static final long PROGRESS_INTERVAL_NANOS = 2_000_000_000L;
+
+    private final GraphPoet poet;
+    private final int workers;
+    private final int bridgeCandidateLimit;
+
+    // Abstraction function:
+    //   A batch job that writes poet.poem(line, bridgeCandidateLimit) for each
+    //   input line, using workers threads.
+    // Representation invariant:
+    //   workers > 0 && bridgeCandidateLimit >= 0
+    // Safety from rep exposure:
+    //   all fields are private and final; the poet is never returned.
+
+    /**
+     * Create a batch job.
+     * @param poet poet to generate poems with
+     * @param workers number of threads generating poems, must be positive
+     * @param bridgeCandidateLimit passed to {@link GraphPoet#poem(String, int)}
+     */
+    public BatchPoet(GraphPoet poet, int workers, int bridgeCandidateLimit) {
+        if (workers <= 0 || bridgeCandidateLimit < 0) {
+            throw new IllegalArgumentException("Invalid batch settings");
+        }
+        this.poet = poet;
+        this.workers = workers;
+        this.bridgeCandidateLimit = bridgeCandidateLimit;
+    }
+
+    /**
+     * Generate a poem for every line of in and write them to out, one per line.
+     *
+     * @param in UTF-8 input lines; not closed
+     * @param out destination of the poems, UTF-8; flushed but not closed
+     * @param progress where to report throughput every few seconds, or null for no reports
+     * @return number of lines processed
+     * @throws IOException if in cannot be read or out cannot be written
+     */
+    public long run(ReadableByteChannel in, WritableByteChannel out, PrintStream progress) throws IOException {
+        BufferedReader reader = new BufferedReader(
+                Channels.newReader(in, StandardCharsets.UTF_8.newDecoder(), -1), READ_BUFFER_CHARS);
+        Writer writer = new BufferedWriter(
+                Channels.newWriter(out, StandardCharsets.UTF_8.newEncoder(), -1), WRITE_BUFFER_CHARS);
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        Deque<Future<String>> window = new ArrayDeque<>();
+        long start = System.nanoTime();
+        long lastReport = start;
+        long lines = 0;
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String input = line;
+                window.addLast(pool.submit(() -> poet.poem(input, bridgeCandidateLimit)));
+                if (window.size() >= workers * WINDOW_PER_WORKER) {
+                    writePoem(writer, window.removeFirst());
+                    lines++;
+                }
+                long now = System.nanoTime();
+                if (progress != null && now - lastReport >= PROGRESS_INTERVAL_NANOS) {
+                    report(progress, lines, now - start);
+                    lastReport = now;
+                }
+            }
+            while (!window.isEmpty()) {
+                writePoem(writer, window.removeFirst());
+                lines++;
+            }
+            writer.flush();
+        } finally {
+            pool.shutdownNow();
+        }
+        if (progress != null) {
+            report(progress, lines, System.nanoTime() - start);
+        }
+        return lines;
+    }
+
+    private static void writePoem(Writer writer, Future<String> poem) throws IOException {
+        try {
+            writer.write(poem.get());
+            writer.write('\n');
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating poems", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Poem generation failed", e.getCause());
+        }
+    }
+
+    private static void report(PrintStream progress, long lines, long nanos) {
+        progress.printf(Locale.ROOT, "%d lines in %.1f s (%.0f lines/s)%n",
+                lines, nanos / 1e9, lines / Math.max(nanos / 1e9, 1e-9));
+    }
+}
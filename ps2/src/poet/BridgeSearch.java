@@ -0,0 +1,375 @@
+package poet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjIntConsumer;
+
+import graph.ReadableGraph;
+
+/**
+ * Immutable settings for multi-hop bridging, used by
+ * {@link GraphPoet#poem(String, BridgeSearch)}.
+ *
+ * <p>Between each pair of adjacent input words w1 and w2, the poet looks for
+ * the strongest path w1 -> b1 -> ... -> bm -> w2 in the affinity graph, with
+ * 1 <= m <= maxIntermediates distinct intermediate words, and inserts b1 ...
+ * bm between the words. A path is as strong as its lightest edge, so adding
+ * words never makes a path stronger; ties go to fewer intermediates, then to
+ * the larger sum of edge weights.
+ *
+ * <p>The search grows paths forward from w1 and backward from w2 at the same
+ * time and joins them in the middle, so each side only goes about half as
+ * deep. To stay fast on hub words, each word expands only its degreeCap
+ * heaviest edges, and each depth keeps only its degreeCap best partial paths;
+ * the answer is therefore the best path among those explored, not always the
+ * best path in the graph. A {@link Memo} keeps the capped neighbors of each
+ * word and the forward and backward partial paths from each word for the
+ * whole poem, so a word that appears in several pairs is expanded once per
+ * direction. A poem that runs past its time budget stops searching, even in
+ * the middle of a word's edges, and keeps the bridges found so far.
+ */
+public class BridgeSearch {
+
+    private final int maxIntermediates;
+    private final int degreeCap;
+    private final long timeBudgetNanos;
+
+    // Abstraction function:
+    //   Bridge search for paths of 1 to maxIntermediates intermediate words,
+    //   expanding degreeCap edges per word and keeping degreeCap paths per
+    //   depth, for at most timeBudgetNanos per poem.
+    // Representation invariant:
+    //   maxIntermediates >= 1, degreeCap >= 1, timeBudgetNanos > 0
+    // Safety from rep exposure:
+    //   all fields are private, final and primitive.
+
+    /**
+     * Create bridge search settings.
+     *
+     * @param maxIntermediates most words inserted between two input words, at least 1
+     * @param degreeCap edges expanded per word and partial paths kept per depth, at least 1
+     * @param timeBudgetMillis longest time spent searching per poem, positive
+     */
+    public BridgeSearch(int maxIntermediates, int degreeCap, long timeBudgetMillis) {
+        if (maxIntermediates < 1 || degreeCap < 1 || timeBudgetMillis <= 0) {
+            throw new IllegalArgumentException("Invalid bridge search settings");
+        }
+        this.maxIntermediates = maxIntermediates;
+        this.degreeCap = degreeCap;
+        this.timeBudgetNanos = TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+    }
+
+    /**
+     * @return most words inserted between two input words
+     */
+    public int maxIntermediates() {
+        return maxIntermediates;
+    }
+
+    /**
+     * @return edges expanded per word and partial paths kept per depth
+     */
+    public int degreeCap() {
+        return degreeCap;
+    }
+
+    /**
+     * @return longest time spent searching per poem, in nanoseconds
+     */
+    public long timeBudgetNanos() {
+        return timeBudgetNanos;
+    }
+
+    /**
+     * Find the best bridge between two words.
+     *
+     * @param from lowercase first word
+     * @param to lowercase second word
+     * @param memo memo of the poem being bridged, made with these settings
+     * @return the intermediate words of the best path found, in order, or an
+     *         empty list if none was found before the memo's deadline
+     */
+    List<String> find(String from, String to, Memo memo) {
+        Set<String> vertices = memo.graph.vertices();
+        if (memo.expired() || from.isEmpty() || to.isEmpty() || !vertices.contains(from) || !vertices.contains(to)) {
+            return Collections.emptyList();
+        }
+        List<Map<String, Step>> forward = memo.frontier(from, (maxIntermediates + 2) / 2, true);
+        List<Map<String, Step>> backward = memo.frontier(to, (maxIntermediates + 1) / 2, false);
+
+        List<String> best = Collections.emptyList();
+        Step bestScore = null;
+        for (int a = 1; a < forward.size(); a++) {
+            for (int b = 1; b < backward.size() && a + b <= maxIntermediates + 1; b++) {
+                Map<String, Step> smaller = forward.get(a).size() <= backward.get(b).size()
+                        ? forward.get(a) : backward.get(b);
+                for (String middle : smaller.keySet()) {
+                    Step head = forward.get(a).get(middle);
+                    Step tail = backward.get(b).get(middle);
+                    if (head == null || tail == null) {
+                        continue;
+                    }
+                    Step score = new Step(middle, Math.min(head.bottleneck, tail.bottleneck), head.sum + tail.sum,
+                            null);
+                    int length = a + b - 1;
+                    if (bestScore != null && !stronger(score, length, bestScore, best.size())) {
+                        continue;
+                    }
+                    List<String> path = join(head, tail, from, to);
+                    if (path != null) {
+                        best = path;
+                        bestScore = score;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /* True iff a path of score and length beats one of otherScore and otherLength. */
+    private static boolean stronger(Step score, int length, Step otherScore, int otherLength) {
+        if (score.bottleneck != otherScore.bottleneck) {
+            return score.bottleneck > otherScore.bottleneck;
+        }
+        if (length != otherLength) {
+            return length < otherLength;
+        }
+        return score.sum > otherScore.sum;
+    }
+
+    /*
+     * Best partial paths from start by number of edges, following edges
+     * forward or backward: element d maps each word reached by d edges to the
+     * best such path. Stops early at the memo's deadline.
+     */
+    private List<Map<String, Step>> layers(String start, int depth, boolean forward, Memo memo) {
+        List<Map<String, Step>> layers = new ArrayList<>();
+        layers.add(Collections.singletonMap(start, new Step(start, Integer.MAX_VALUE, 0, null)));
+        for (int d = 1; d <= depth && !memo.expired(); d++) {
+            Map<String, Step> next = new HashMap<>();
+            for (Step step : layers.get(d - 1).values()) {
+                if (memo.expired()) {
+                    break;
+                }
+                Map<String, Integer> edges = forward ? memo.targets(step.word) : memo.sources(step.word);
+                for (Map.Entry<String, Integer> edge : edges.entrySet()) {
+                    String word = edge.getKey();
+                    if (word.equals(start)) {
+                        continue;
+                    }
+                    Step reached = new Step(word, Math.min(step.bottleneck, edge.getValue()),
+                            step.sum + edge.getValue(), step);
+                    Step known = next.get(word);
+                    if (known == null || reached.compareTo(known) > 0) {
+                        next.put(word, reached);
+                    }
+                }
+            }
+            layers.add(beam(next));
+        }
+        return layers;
+    }
+
+    /* The degreeCap strongest entries of layer, ties going to the smaller word. */
+    private Map<String, Step> beam(Map<String, Step> layer) {
+        if (layer.size() <= degreeCap) {
+            return layer;
+        }
+        List<Step> steps = new ArrayList<>(layer.values());
+        steps.sort((x, y) -> x.compareTo(y) != 0 ? y.compareTo(x) : x.word.compareTo(y.word));
+        Map<String, Step> kept = new HashMap<>();
+        for (Step step : steps.subList(0, degreeCap)) {
+            kept.put(step.word, step);
+        }
+        return kept;
+    }
+
+    /*
+     * Intermediate words of the path made of head (from the first word to
+     * middle) and tail (from middle to the second word), or null if a word
+     * repeats or an endpoint of the bridge is among them.
+     */
+    private static List<String> join(Step head, Step tail, String from, String to) {
+        List<String> path = new ArrayList<>();
+        for (Step step = head; step.previous != null; step = step.previous) {
+            path.add(step.word);
+        }
+        Collections.reverse(path);
+        for (Step step = tail.previous; step.previous != null; step = step.previous) {
+            path.add(step.word);
+        }
+        Set<String> distinct = new HashSet<>(path);
+        return distinct.size() == path.size() && !distinct.contains(from) && !distinct.contains(to) ? path : null;
+    }
+
+    /*
+     * A partial path: word, reached after previous, with lightest edge
+     * bottleneck and edge weights summing to sum. Ordered by strength: by
+     * bottleneck, then by sum.
+     */
+    private static final class Step implements Comparable<Step> {
+        final String word;
+        final int bottleneck;
+        final long sum;
+        final Step previous;
+
+        Step(String word, int bottleneck, long sum, Step previous) {
+            this.word = word;
+            this.bottleneck = bottleneck;
+            this.sum = sum;
+            this.previous = previous;
+        }
+
+        @Override
+        public int compareTo(Step other) {
+            return bottleneck != other.bottleneck
+                    ? Integer.compare(bottleneck, other.bottleneck)
+                    : Long.compare(sum, other.sum);
+        }
+    }
+
+    /**
+     * Make a memo for bridging one poem.
+     *
+     * @param graph affinity graph to search
+     * @param deadline System.nanoTime() value after which searches give up
+     * @return empty memo for searches with these settings
+     */
+    Memo memo(ReadableGraph<String> graph, long deadline) {
+        return new Memo(this, graph, deadline);
+    }
+
+    /**
+     * Memo of one poem's searches: each word's degreeCap heaviest targets and
+     * sources, and the partial paths forward and backward from each word, all
+     * cut short at the poem's deadline. Not thread-safe.
+     */
+    static final class Memo {
+        /* Edges visited between deadline checks while choosing a word's heaviest edges. */
+        private static final int EDGES_PER_CHECK = 1024;
+
+        private final BridgeSearch search;
+        private final ReadableGraph<String> graph;
+        private final long deadline;
+        private final Map<String, Map<String, Integer>> targets = new HashMap<>();
+        private final Map<String, Map<String, Integer>> sources = new HashMap<>();
+        private final Map<String, List<Map<String, Step>>> forward = new HashMap<>();
+        private final Map<String, List<Map<String, Step>>> backward = new HashMap<>();
+
+        private Memo(BridgeSearch search, ReadableGraph<String> graph, long deadline) {
+            this.search = search;
+            this.graph = graph;
+            this.deadline = deadline;
+        }
+
+        boolean expired() {
+            return System.nanoTime() >= deadline;
+        }
+
+        /* Partial paths from word of up to depth edges; depth is fixed per direction by the settings. */
+        private List<Map<String, Step>> frontier(String word, int depth, boolean forwards) {
+            Map<String, List<Map<String, Step>>> frontiers = forwards ? forward : backward;
+            List<Map<String, Step>> frontier = frontiers.get(word);
+            if (frontier == null) {
+                frontier = search.layers(word, depth, forwards, this);
+                frontiers.put(word, frontier);
+            }
+            return frontier;
+        }
+
+        Map<String, Integer> targets(String word) {
+            return neighbors(word, true);
+        }
+
+        Map<String, Integer> sources(String word) {
+            return neighbors(word, false);
+        }
+
+        /*
+         * The degreeCap heaviest edges out of or into word, heaviest first and
+         * ties going to the smaller word, chosen in one pass over its edges with
+         * a heap of degreeCap entries; edges left unvisited at the deadline are
+         * skipped, and then the result is not memoized.
+         */
+        private Map<String, Integer> neighbors(String word, boolean out) {
+            Map<String, Map<String, Integer>> memo = out ? targets : sources;
+            Map<String, Integer> known = memo.get(word);
+            if (known != null) {
+                return known;
+            }
+            Heaviest heaviest = new Heaviest(search.degreeCap, deadline);
+            try {
+                if (out) {
+                    graph.forEachTarget(word, heaviest);
+                } else {
+                    graph.forEachSource(word, heaviest);
+                }
+            } catch (DeadlinePassed e) {
+                return heaviest.toMap();
+            }
+            Map<String, Integer> result = heaviest.toMap();
+            memo.put(word, result);
+            return result;
+        }
+
+        /* Keeps the cap heaviest edges passed to it; throws DeadlinePassed once the deadline passes. */
+        private static final class Heaviest implements ObjIntConsumer<String> {
+            private final int cap;
+            private final long deadline;
+            // lightest kept edge first, ties putting the larger word first
+            private final PriorityQueue<Map.Entry<String, Integer>> kept;
+            private int visited;
+
+            Heaviest(int cap, long deadline) {
+                this.cap = cap;
+                this.deadline = deadline;
+                this.kept = new PriorityQueue<>(cap + 1, (x, y) -> !x.getValue().equals(y.getValue())
+                        ? Integer.compare(x.getValue(), y.getValue())
+                        : y.getKey().compareTo(x.getKey()));
+            }
+
+            @Override
+            public void accept(String word, int weight) {
+                if (++visited % EDGES_PER_CHECK == 0 && System.nanoTime() >= deadline) {
+                    throw new DeadlinePassed();
+                }
+                kept.add(Map.entry(word, weight));
+                if (kept.size() > cap) {
+                    kept.poll();
+                }
+            }
+
+            Map<String, Integer> toMap() {
+                List<Map.Entry<String, Integer>> edges = new ArrayList<>(kept);
+                edges.sort(kept.comparator().reversed());
+                Map<String, Integer> result = new LinkedHashMap<>();
+                for (Map.Entry<String, Integer> edge : edges) {
+                    result.put(edge.getKey(), edge.getValue());
+                }
+                return Collections.unmodifiableMap(result);
+            }
+        }
+
+        /* Stops a pass over a word's edges at the deadline; carries no stack trace. */
+        private static final class DeadlinePassed extends RuntimeException {
+            private static final long serialVersionUID = 1L;
+
+            DeadlinePassed() {
+                super(null, null, false, false);
+            }
+        }
+    }
+
+    @Override public String toString() {
+        return "BridgeSearch(up to " + maxIntermediates + " words, degree cap " + degreeCap
+                + ", " + TimeUnit.NANOSECONDS.toMillis(timeBudgetNanos) + " ms)";
+    }
+}
@@ -0,0 +1,175 @@
+package poet;
+
+/**
+ * A Count-Min sketch: a fixed-size table of counters that estimates how many
+ * times each key has been added, using the same memory no matter how many
+ * distinct keys are seen.
+ *
+ * <p>Estimates never undercount. With width w and depth d, an estimate exceeds
+ * the true count by more than epsilon * N with probability at most delta, where
+ * epsilon = e / w, delta = e^-d and N is the total count added so far.
+ */
+public class CountMinSketch {
+
+    /** Approximate heap cost of one counter. */
+    private static final int BYTES_PER_COUNTER = Long.BYTES;
+
+    /** Depth used when only a memory budget is given: delta = e^-4, about 1.8%. */
+    private static final int DEFAULT_DEPTH = 4;
+
+    private final int width;
+    private final int depth;
+    private final long[] counts;
+    private long total;
+
+    // Abstraction function:
+    //   Represents a multiset of strings, approximated as: the count of key k is
+    //   min over rows r of counts[r * width + bucket(k, r)].
+    //
+    // Representation invariant:
+    //   width > 0 && depth > 0
+    //   counts.length == width * depth
+    //   every counter is >= 0 and <= total
+    //
+    // Safety from rep exposure:
+    //   counts is private and never returned; only primitive estimates leave the object.
+
+    /**
+     * Creates an empty sketch.
+     *
+     * @param width number of counters per row, must be positive
+     * @param depth number of rows (independent hash functions), must be positive
+     */
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || depth <= 0 || (long) width * depth > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid sketch dimensions: " + width + "x" + depth);
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counts = new long[width * depth];
+        checkRep();
+    }
+
+    /**
+     * Creates an empty sketch whose counter table fits in the given number of bytes.
+     *
+     * @param bytes memory budget for the counters, must allow at least one counter per row
+     * @return a new sketch with depth 4 and as much width as the budget allows
+     */
+    public static CountMinSketch withMemoryBudget(long bytes) {
+        long width = bytes / ((long) BYTES_PER_COUNTER * DEFAULT_DEPTH);
+        if (width <= 0 || width * DEFAULT_DEPTH > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported sketch memory budget: " + bytes);
+        }
+        return new CountMinSketch((int) width, DEFAULT_DEPTH);
+    }
+
+    private void checkRep() {
+        assert width > 0 && depth > 0;
+        assert counts.length == width * depth;
+        assert total >= 0;
+    }
+
+    /**
+     * Adds one occurrence of a key.
+     *
+     * @param key key to count, not null
+     */
+    public void add(String key) {
+        add(key, 1);
+    }
+
+    /**
+     * Adds occurrences of a key.
+     *
+     * @param key key to count, not null
+     * @param count number of occurrences to add, must be nonnegative
+     */
+    public void add(String key, long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count cannot be negative");
+        }
+        int h1 = mix(key.hashCode());
+        int h2 = mix(h1 ^ 0x9E3779B9) | 1;
+        for (int row = 0; row < depth; row++) {
+            counts[row * width + bucket(h1, h2, row)] += count;
+        }
+        total += count;
+    }
+
+    /**
+     * Estimates how many times a key was added.
+     *
+     * @param key key to look up, not null
+     * @return an estimate that is never less than the true count
+     */
+    public long estimate(String key) {
+        int h1 = mix(key.hashCode());
+        int h2 = mix(h1 ^ 0x9E3779B9) | 1;
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counts[row * width + bucket(h1, h2, row)]);
+        }
+        return min;
+    }
+
+    /**
+     * @return total of all counts added so far
+     */
+    public long totalCount() {
+        return total;
+    }
+
+    /**
+     * @return relative error epsilon = e / width of each estimate
+     */
+    public double epsilon() {
+        return Math.E / width;
+    }
+
+    /**
+     * @return probability delta = e^-depth that an estimate exceeds its error bound
+     */
+    public double delta() {
+        return Math.exp(-depth);
+    }
+
+    /**
+     * @return additive bound epsilon * totalCount() on the overcount of any estimate,
+     *         holding with probability at least 1 - delta()
+     */
+    public long errorBound() {
+        return (long) Math.ceil(epsilon() * total);
+    }
+
+    /**
+     * @return approximate number of bytes held by the counter table
+     */
+    public long sizeInBytes() {
+        return (long) counts.length * BYTES_PER_COUNTER;
+    }
+
+    /*
+     * Double hashing: the row-th hash function is h1 + row * h2, reduced to a column.
+     */
+    private int bucket(int h1, int h2, int row) {
+        return Math.floorMod(h1 + row * h2, width);
+    }
+
+    /*
+     * Murmur3 finalizer, spreads String.hashCode bits across the whole word.
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    @Override public String toString() {
+        return "CountMinSketch(" + width + "x" + depth + ", total=" + total
+                + ", errorBound=" + errorBound() + ")";
+    }
+}
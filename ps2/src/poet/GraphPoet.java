@@ -7,6 +7,8 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -14,39 +16,197 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import graph.Graph;
+import graph.GraphIO;
+import graph.MemoryStats;
+import graph.ReadableGraph;
+import graph.Validation;
+import metrics.Metrics;
 
 public class GraphPoet {
-    private final Graph<String> affinityGraph;
+    private static final Pattern WORD = Pattern.compile("\\S+");
+    
+    private final ReadableGraph<String> affinityGraph;
     private final List<String> corpusWords;
+    private final long approximationErrorBound;
+    private final long corpusBytes;
+    private final AtomicLong repChecks = new AtomicLong();
     
     public GraphPoet(File corpus) throws IOException {
         corpusWords = extractWordsFromFile(corpus);
         affinityGraph = generateAffinityGraph(corpusWords);
+        approximationErrorBound = 0;
+        corpusBytes = estimateCorpusBytes(corpusWords, affinityGraph);
+        checkConstructed();
+    }
+    /**
+     * Create a poet from a corpus too large to count exactly, in bounded memory.
+     * 
+     * Bigram frequencies are estimated by a Count-Min sketch of sketchBytes bytes,
+     * and only the maxEdges most frequent bigrams (chosen by a Space-Saving
+     * summary) become edges of the affinity graph. Heap use is bounded by
+     * sketchBytes plus O(maxEdges), independent of corpus size. Edge weights
+     * never undercount, and overcount by at most getApproximationErrorBound(),
+     * with probability about 98% per edge. The corpus words are not retained.
+     * 
+     * The vertices of the affinity graph are only the endpoints of the kept
+     * bigrams: a word whose bigrams are all outside the heavy hitters is not
+     * a vertex, so it is never inserted as a bridge, and no bridge is found
+     * next to it in an input.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param sketchBytes memory budget for the frequency sketch, in bytes
+     * @param maxEdges maximum number of edges in the affinity graph, must be positive
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public GraphPoet(File corpus, long sketchBytes, int maxEdges) throws IOException {
+        CountMinSketch sketch = CountMinSketch.withMemoryBudget(sketchBytes);
+        SpaceSaving heavyHitters = new SpaceSaving(maxEdges);
+        String[] previous = new String[1];
+        forEachWordInFile(corpus, word -> {
+            if (previous[0] != null) {
+                String bigram = previous[0] + " " + word;
+                sketch.add(bigram);
+                heavyHitters.offer(bigram);
+            }
+            previous[0] = word;
+        });
+        corpusWords = Collections.emptyList();
+        Graph<String> graph = Graph.empty();
+        for (Map.Entry<String, Long> entry : heavyHitters.counts().entrySet()) {
+            String bigram = entry.getKey();
+            int split = bigram.indexOf(' ');
+            long weight = Math.min(entry.getValue(), sketch.estimate(bigram));
+            graph.set(bigram.substring(0, split), bigram.substring(split + 1),
+                    (int) Math.min(weight, Integer.MAX_VALUE));
+        }
+        affinityGraph = graph;
+        approximationErrorBound = sketch.errorBound();
+        corpusBytes = 0;
+        checkConstructed();
+    }
+    /**
+     * Create a poet from an already tokenized corpus and its affinity graph.
+     * 
+     * @param corpusWords lowercase corpus words, in order
+     * @param affinityGraph affinity graph of corpusWords
+     */
+    GraphPoet(List<String> corpusWords, ReadableGraph<String> affinityGraph) {
+        this.corpusWords = corpusWords;
+        this.affinityGraph = affinityGraph;
+        this.approximationErrorBound = 0;
+        this.corpusBytes = estimateCorpusBytes(corpusWords, affinityGraph);
+        checkConstructed();
+    }
+    /**
+     * Create a poet from a prebuilt affinity graph, skipping corpus processing.
+     * 
+     * The edge list is in the format written by
+     * {@link GraphIO#writeEdgeList(Graph, java.io.Writer)}: each line is either
+     * "source TAB target TAB weight" for an edge, or a single word for a vertex
+     * without edges. The corpus words are not available from a poet created this way.
+     * 
+     * @param edgeList edge list file of a lowercase affinity graph
+     * @return poet whose affinity graph is the edge list
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static GraphPoet fromEdgeList(File edgeList) throws IOException {
+        Graph<String> graph = Graph.empty();
+        try (FileChannel in = FileChannel.open(edgeList.toPath(), StandardOpenOption.READ)) {
+            GraphIO.readEdgeList(in, graph);
+        }
+        return new GraphPoet(Collections.emptyList(), graph);
+    }
+    
+    /**
+     * Create a new poet whose affinity graph is computed lazily from the corpus.
+     * 
+     * <p>Loading only tokenizes the corpus and indexes where each word occurs;
+     * the affinities of a word are counted from that index the first time a
+     * poem needs them, and the most recently used cacheSize words are kept.
+     * Poems are the same as from {@link #GraphPoet(File)}, but startup skips
+     * building the whole graph, which suits large corpora that are rarely used.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param cacheSize maximum number of words whose affinities are kept in
+     *        each direction, must be positive
+     * @return poet backed by a lazy affinity graph of corpus
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public static GraphPoet lazy(File corpus, int cacheSize) throws IOException {
+        LazyAffinityGraph graph = new LazyAffinityGraph(corpus, cacheSize);
+        return new GraphPoet(graph.corpusWords(), graph);
+    }
+
+    /*
+     * Check the rep as a constructor leaves it. Construction touches every
+     * corpus word, so unless validation is off this checks each one is a
+     * vertex, in time proportional to the corpus.
+     */
+    private void checkConstructed() {
+        if (!Validation.level().checksTouched()) {
+            return;
+        }
+        Set<String> vertices = affinityGraph.vertices();
+        for (String word : corpusWords) {
+            assert vertices.contains(word) : "corpus word missing from affinity graph: " + word;
+        }
         checkRep();
     }
+
+    /*
+     * Check the rep after a poem, which changes nothing: the fields in O(1),
+     * and the corpus words too when the validation level samples this check.
+     */
     private void checkRep() {
+        if (!Validation.level().checksTouched()) {
+            return;
+        }
         assert affinityGraph != null;
+        assert corpusWords != null;
+        assert approximationErrorBound >= 0 && corpusBytes >= 0;
+        if (Validation.level().checksAll(repChecks.incrementAndGet())) {
+            Set<String> vertices = affinityGraph.vertices();
+            for (String word : corpusWords) {
+                assert vertices.contains(word) : "corpus word missing from affinity graph: " + word;
+            }
+        }
     }
     /** Returns a list of words in lowercase, */
-    private List<String> extractWordsFromFile(File corpus) throws IOException {
+    static List<String> extractWordsFromFile(File corpus) throws IOException {
         List<String> words = new ArrayList<>();
+        forEachWordInFile(corpus, words::add);
+        assert words != Collections.EMPTY_LIST;
+        return words;
+    }
+    /** Passes each word of the corpus, in lowercase and in order, to action. */
+    static void forEachWordInFile(File corpus, Consumer<String> action) throws IOException {
+        boolean timed = Metrics.isOn();
+        long start = timed ? System.nanoTime() : 0;
+        long words = 0;
         try (Scanner s = new Scanner(new BufferedReader(new FileReader(corpus)))) {
             while (s.hasNext()) {
-                words.add(s.next().toLowerCase());
+                action.accept(s.next().toLowerCase());
+                words++;
             }
         }
-        assert words != Collections.EMPTY_LIST;
-        return words;
+        if (timed) {
+            Metrics.TOKENIZED_WORDS.add(words);
+            Metrics.TOKENIZE_NANOS.add(System.nanoTime() - start);
+        }
     }
     /**
      
      * @return a graph whose vertices are lowercase words
      *         and edges are the counts of adjacencies
      */
-    private Graph<String> generateAffinityGraph(List<String> words){
+    static Graph<String> generateAffinityGraph(List<String> words){
         Graph<String> graph = Graph.empty();
         
         for (int i = 0; i < words.size(); i++) {
@@ -61,6 +221,24 @@ public class GraphPoet {
         }
         return graph;
     }
+    /*
+     * Estimate the heap of corpusWords beyond what affinityGraph already counts,
+     * once, so memoryStats() stays O(1). The first occurrence of each word is the
+     * string the affinity graph keeps as its label, so only the list and the
+     * later occurrences are added; a graph that holds the corpus itself, as a
+     * lazy graph does, leaves nothing to add.
+     */
+    private static long estimateCorpusBytes(List<String> corpusWords, ReadableGraph<String> affinityGraph) {
+        MemoryStats graphStats = affinityGraph.memoryStats();
+        if (corpusWords.isEmpty() || graphStats.corpusBytes() > 0) {
+            return 0;
+        }
+        return MemoryStats.estimateWordListBytes(corpusWords) - graphStats.labelBytes();
+    }
+    /** Returns the affinity graph, for tests in this package. */
+    ReadableGraph<String> affinityGraph() {
+        return affinityGraph;
+    }
     /** 
      * Returns the words in the affinity graph generated from the corpus
      * 
@@ -69,11 +247,22 @@ public class GraphPoet {
      * or the ends of the file.
      * 
      * @return list of words in the order they appear in the corpus. All words are
-     *         in lowercase
+     *         in lowercase. Empty if the poet was built by approximate ingestion
      */
     public List<String> getCorpusWords() {
         return Collections.unmodifiableList(corpusWords);
     }
+    /**
+     * Returns the largest amount by which an affinity graph edge weight may
+     * overcount its bigram frequency.
+     * 
+     * @return 0 for a poet built by exact counting, otherwise the Count-Min
+     *         sketch error bound of approximate ingestion
+     */
+    public long getApproximationErrorBound() {
+        return approximationErrorBound;
+    }
+
     /**
      * Generate a poem.
      * 
@@ -81,25 +270,39 @@ public class GraphPoet {
      * @return poem (as described above)
      */
     public String poem(String input) {
+        return poem(input, 0);
+    }
+
+    /**
+     * Generate a poem, considering only the heaviest edges out of each input
+     * word as bridge candidates. This bounds the work per word pair for words
+     * with very high degree in the affinity graph.
+     * 
+     * @param input string from which to create the poem
+     * @param bridgeCandidateLimit maximum number of bridge candidates per input
+     *        word, or 0 to consider every candidate
+     * @return poem (as described above)
+     */
+    public String poem(String input, int bridgeCandidateLimit) {
+        if (bridgeCandidateLimit < 0) {
+            throw new IllegalArgumentException("Bridge candidate limit cannot be negative");
+        }
+        boolean timed = Metrics.isOn();
+        long start = timed ? System.nanoTime() : 0;
         String[] inputWords = input.split("\\s");
         StringBuilder poem = new StringBuilder(input);
         int fromIndex = 0;
+        int bridges = 0;
         
         for (int i = 0; i < inputWords.length; i++) {
             if (i + 1 >= inputWords.length) {
                 break;
             }
-            Map<String, Integer> word1Targets = 
-                    affinityGraph.targets(inputWords[i].toLowerCase());
-            Map<String, Integer> word2Sources =
-                    affinityGraph.sources(inputWords[i+1].toLowerCase());
-            Set<String> probableBridges = word1Targets.keySet();
-            
-            List<String> allBridges = probableBridges.stream()
-                    .filter(possibleBridge -> word2Sources.containsKey(possibleBridge))
-                    .collect(Collectors.toList());
+            List<String> allBridges = findBridges(inputWords[i].toLowerCase(),
+                    inputWords[i+1].toLowerCase(), bridgeCandidateLimit);
             
             if (!allBridges.isEmpty()) {
+                bridges++;
                 Random rand = new Random();
                 int  n = rand.nextInt(allBridges.size());
                 String bridge = allBridges.get(n);
@@ -109,10 +312,83 @@ public class GraphPoet {
                 poem.insert(insertAt, bridge + " ");
             }
         }
+        if (timed) {
+            Metrics.BRIDGE_ATTEMPTS.add(Math.max(0, inputWords.length - 1));
+            Metrics.BRIDGE_HITS.add(bridges);
+            Metrics.POEM.record(System.nanoTime() - start);
+        }
+        checkRep();
+        return poem.toString();
+    }
+
+    /**
+     * Generate a poem, bridging each pair of adjacent input words with a path
+     * of up to search.maxIntermediates() words, instead of a single word.
+     * 
+     * <p>Between input words w1 and w2, this inserts the words of the
+     * strongest path from w1 to w2 that the bounded search finds, as described
+     * in {@link BridgeSearch}; the choice is deterministic. Pairs without a
+     * path, and pairs left when the time budget runs out, get no bridge.
+     * 
+     * @param input string from which to create the poem
+     * @param search settings of the multi-hop bridge search
+     * @return poem: input with the bridge words of each pair, each followed
+     *         by a space, inserted before the second word of the pair
+     */
+    public String poem(String input, BridgeSearch search) {
+        long start = System.nanoTime();
+        long deadline = start + search.timeBudgetNanos();
+        BridgeSearch.Memo memo = search.memo(affinityGraph, deadline);
+        Matcher words = WORD.matcher(input);
+        StringBuilder poem = new StringBuilder();
+        String previous = null;
+        int copied = 0;
+        int pairs = 0;
+        int bridges = 0;
+        while (words.find()) {
+            String word = words.group();
+            if (previous != null) {
+                pairs++;
+                List<String> bridge = search.find(previous.toLowerCase(), word.toLowerCase(), memo);
+                poem.append(input, copied, words.start());
+                for (String bridgeWord : bridge) {
+                    poem.append(bridgeWord).append(' ');
+                }
+                copied = words.start();
+                bridges += bridge.isEmpty() ? 0 : 1;
+            }
+            previous = word;
+        }
+        poem.append(input, copied, input.length());
+        if (Metrics.isOn()) {
+            Metrics.BRIDGE_ATTEMPTS.add(pairs);
+            Metrics.BRIDGE_HITS.add(bridges);
+            Metrics.POEM.record(System.nanoTime() - start);
+        }
         checkRep();
         return poem.toString();
     }
     
+    /** Returns the words b with edges word1 -> b -> word2, among at most limit heaviest targets of word1 if limit > 0. */
+    private List<String> findBridges(String word1, String word2, int limit) {
+        Set<String> probableBridges = limit > 0
+                ? affinityGraph.topTargets(word1, limit).keySet()
+                : affinityGraph.targets(word1).keySet();
+        return probableBridges.stream()
+                .filter(possibleBridge -> affinityGraph.weight(possibleBridge, word2) > 0)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Estimate the heap held by this poet.
+     * 
+     * @return footprint of the affinity graph plus the retained corpus words,
+     *         counting each string once
+     */
+    public MemoryStats memoryStats() {
+        return affinityGraph.memoryStats().withCorpusBytes(corpusBytes);
+    }
+    
     @Override public String toString() {
         return affinityGraph.toString();
     }
@@ -0,0 +1,333 @@
+package poet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+import graph.Footprint;
+import graph.MemoryStats;
+import graph.ReadableGraph;
+
+/**
+ * A read-only affinity graph computed on demand from a positional index of
+ * a corpus, instead of being built in full up front.
+ * 
+ * <p>Construction only tokenizes the corpus into word ids and records where
+ * each word occurs. The targets of a word are counted from the words that
+ * follow its occurrences, and its sources from the words that precede them,
+ * on first access, and sorted by descending weight; the most recently used
+ * adjacencies are kept in a bounded cache, so top-k queries on a cached word
+ * cost O(k). Edge weights are exact adjacency counts, the same as in
+ * {@link GraphPoet#generateAffinityGraph(List)}.
+ * 
+ * <p>Safe for concurrent reads.
+ */
+class LazyAffinityGraph implements ReadableGraph<String> {
+
+    private final String[] vocabulary;
+    private final Map<String, Integer> ids;
+    private final int[] tokens;
+    private final int[] offsets;
+    private final int[] positions;
+    private final AdjacencyCache targetsCache;
+    private final AdjacencyCache sourcesCache;
+    private final long labelBytes;
+    private final long indexBytes;
+
+    // Abstraction function:
+    //   Represents the affinity graph of the corpus vocabulary[tokens[0]],
+    //   vocabulary[tokens[1]], ...: an edge a -> b of weight w means a is
+    //   immediately followed by b exactly w times.
+    //   The occurrences of word id i are positions[offsets[i] .. offsets[i+1]-1].
+    //   targetsCache and sourcesCache hold some already computed adjacencies.
+    // Representation invariant:
+    //   ids.get(vocabulary[i]) == i for every i
+    //   offsets.length == vocabulary.length + 1, offsets is nondecreasing,
+    //     offsets[0] == 0 and offsets[vocabulary.length] == tokens.length
+    //   tokens[positions[j]] == i for every j in [offsets[i], offsets[i+1])
+    //   every cached map equals the adjacency computed from the index, and
+    //     iterates in descending weight order
+    //   labelBytes and indexBytes are the footprint of vocabulary and of the index
+    // Safety from rep exposure:
+    //   arrays and maps are private; returned maps are unmodifiable, and the
+    //   corpus view is an unmodifiable list.
+    // Thread safety argument:
+    //   the index is never modified after construction; each cache is only
+    //   accessed while holding its own lock.
+
+    /**
+     * Index a corpus.
+     * @param corpus text file of words separated by whitespace
+     * @param cacheSize maximum number of adjacencies kept for each direction, must be positive
+     * @throws IOException if the corpus cannot be read
+     */
+    LazyAffinityGraph(File corpus, int cacheSize) throws IOException {
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> vocabulary = new ArrayList<>();
+        int[][] tokens = { new int[1024] };
+        int[] count = { 0 };
+        GraphPoet.forEachWordInFile(corpus, new Consumer<String>() {
+            @Override public void accept(String word) {
+                Integer id = ids.get(word);
+                if (id == null) {
+                    id = vocabulary.size();
+                    ids.put(word, id);
+                    vocabulary.add(word);
+                }
+                if (count[0] == tokens[0].length) {
+                    tokens[0] = Arrays.copyOf(tokens[0], tokens[0].length * 2);
+                }
+                tokens[0][count[0]++] = id;
+            }
+        });
+        this.vocabulary = vocabulary.toArray(new String[0]);
+        this.ids = ids;
+        this.tokens = Arrays.copyOf(tokens[0], count[0]);
+
+        // counting sort of positions by word id
+        this.offsets = new int[this.vocabulary.length + 1];
+        for (int token : this.tokens) {
+            offsets[token + 1]++;
+        }
+        for (int i = 0; i < this.vocabulary.length; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        this.positions = new int[this.tokens.length];
+        int[] next = Arrays.copyOf(offsets, this.vocabulary.length);
+        for (int position = 0; position < this.tokens.length; position++) {
+            positions[next[this.tokens[position]]++] = position;
+        }
+        this.targetsCache = new AdjacencyCache(cacheSize);
+        this.sourcesCache = new AdjacencyCache(cacheSize);
+
+        long labelBytes = 0;
+        long idBytes = 0;
+        for (int id = 0; id < this.vocabulary.length; id++) {
+            labelBytes += Footprint.label(this.vocabulary[id]);
+            idBytes += Footprint.HASH_NODE + Footprint.HASH_SLOT + Footprint.boxed(id);
+        }
+        this.labelBytes = labelBytes;
+        this.indexBytes = intArrayBytes(offsets.length) + intArrayBytes(positions.length)
+                + Footprint.align(Footprint.ARRAY_HEADER + (long) this.vocabulary.length * Footprint.REFERENCE)
+                + Footprint.HASH_MAP + idBytes;
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert offsets.length == vocabulary.length + 1;
+        assert offsets[0] == 0 && offsets[vocabulary.length] == tokens.length;
+        assert ids.size() == vocabulary.length;
+    }
+
+    private static long intArrayBytes(int length) {
+        return Footprint.align(Footprint.ARRAY_HEADER + (long) length * Integer.BYTES);
+    }
+
+    /**
+     * @return unmodifiable view of the corpus words in order, backed by the index
+     */
+    List<String> corpusWords() {
+        return new AbstractList<String>() {
+            @Override public String get(int index) {
+                return vocabulary[tokens[index]];
+            }
+
+            @Override public int size() {
+                return tokens.length;
+            }
+        };
+    }
+
+    @Override
+    public Set<String> vertices() {
+        return Collections.unmodifiableSet(ids.keySet());
+    }
+
+    /**
+     * @return the targets of source, iterating in descending weight order
+     */
+    @Override
+    public Map<String, Integer> targets(String source) {
+        return adjacency(source, targetsCache, 1);
+    }
+
+    /**
+     * @return the sources of target, iterating in descending weight order
+     */
+    @Override
+    public Map<String, Integer> sources(String target) {
+        return adjacency(target, sourcesCache, -1);
+    }
+
+    /**
+     * Looks source up among the sources of target, so checking many sources
+     * against one target computes that target's adjacency once.
+     */
+    @Override
+    public int weight(String source, String target) {
+        return sources(target).getOrDefault(source, 0);
+    }
+
+    /*
+     * Count the words at distance step from each occurrence of word, sorted
+     * by descending count, using and filling cache.
+     */
+    private Map<String, Integer> adjacency(String word, AdjacencyCache cache, int step) {
+        Integer id = ids.get(word);
+        if (id == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, Integer> cached = cache.get(word);
+        if (cached != null) {
+            return cached;
+        }
+        Map<String, Integer> counts = new HashMap<>();
+        for (int j = offsets[id]; j < offsets[id + 1]; j++) {
+            int neighbor = positions[j] + step;
+            if (neighbor >= 0 && neighbor < tokens.length) {
+                counts.merge(vocabulary[tokens[neighbor]], 1, Integer::sum);
+            }
+        }
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+        Map<String, Integer> sorted = new LinkedHashMap<>(entries.size() * 4 / 3 + 1);
+        for (Map.Entry<String, Integer> entry : entries) {
+            sorted.put(entry.getKey(), entry.getValue());
+        }
+        Map<String, Integer> adjacency = Collections.unmodifiableMap(sorted);
+        cache.put(word, adjacency);
+        return adjacency;
+    }
+
+    @Override
+    public Map<String, Integer> topTargets(String source, int k) {
+        return top(targets(source), k);
+    }
+
+    @Override
+    public Map<String, Integer> topSources(String target, int k) {
+        return top(sources(target), k);
+    }
+
+    /* The first k entries of an adjacency already sorted by descending weight, in O(k). */
+    private static Map<String, Integer> top(Map<String, Integer> adjacency, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative");
+        }
+        Map<String, Integer> result = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, Integer>> entries = adjacency.entrySet().iterator();
+        while (result.size() < k && entries.hasNext()) {
+            Map.Entry<String, Integer> entry = entries.next();
+            result.put(entry.getKey(), entry.getValue());
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    public void forEachVertex(Consumer<? super String> action) {
+        for (String word : vocabulary) {
+            action.accept(word);
+        }
+    }
+
+    @Override
+    public void forEachTarget(String source, ObjIntConsumer<? super String> action) {
+        for (Map.Entry<String, Integer> edge : targets(source).entrySet()) {
+            action.accept(edge.getKey(), edge.getValue());
+        }
+    }
+
+    @Override
+    public void forEachSource(String target, ObjIntConsumer<? super String> action) {
+        for (Map.Entry<String, Integer> edge : sources(target).entrySet()) {
+            action.accept(edge.getKey(), edge.getValue());
+        }
+    }
+
+    /**
+     * Estimate the heap held by the index and caches, in O(1). The corpus is
+     * held as the token array, reported as corpus bytes; the edge count covers
+     * only cached adjacencies.
+     */
+    @Override
+    public MemoryStats memoryStats() {
+        long cachedEdges = 0;
+        long cacheBytes = 0;
+        long weightBytes = 0;
+        for (AdjacencyCache cache : List.of(targetsCache, sourcesCache)) {
+            synchronized (cache) {
+                cachedEdges += cache.edges;
+                cacheBytes += cache.entryBytes;
+                weightBytes += cache.weightBytes;
+            }
+        }
+        return new MemoryStats(vocabulary.length, cachedEdges, labelBytes, indexBytes + cacheBytes,
+                weightBytes, intArrayBytes(tokens.length));
+    }
+
+    @Override public String toString() {
+        return "LazyAffinityGraph(" + vocabulary.length + " words, " + tokens.length + " tokens)";
+    }
+
+    /*
+     * A bounded cache of adjacencies, evicting the least recently used, that
+     * keeps running totals of the footprint of what it holds.
+     * All fields are guarded by the cache's own lock.
+     */
+    private static final class AdjacencyCache {
+        private final int capacity;
+        private final LinkedHashMap<String, Map<String, Integer>> adjacencies = new LinkedHashMap<>(16, 0.75f, true);
+        private long edges;
+        private long entryBytes;
+        private long weightBytes;
+
+        AdjacencyCache(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized Map<String, Integer> get(String word) {
+            return adjacencies.get(word);
+        }
+
+        synchronized void put(String word, Map<String, Integer> adjacency) {
+            Map<String, Integer> replaced = adjacencies.put(word, adjacency);
+            if (replaced != null) {
+                count(replaced, -1);
+            }
+            count(adjacency, 1);
+            if (adjacencies.size() > capacity) {
+                Iterator<Map<String, Integer>> eldest = adjacencies.values().iterator();
+                count(eldest.next(), -1);
+                eldest.remove();
+            }
+        }
+
+        /* Add (sign 1) or subtract (sign -1) the footprint of one cached LinkedHashMap. */
+        private void count(Map<String, Integer> adjacency, int sign) {
+            long entries = Footprint.HASH_MAP;
+            long weights = 0;
+            for (int weight : adjacency.values()) {
+                // a linked entry is a hash entry plus before and after references
+                entries += Footprint.HASH_NODE + Footprint.HASH_SLOT + 2 * Footprint.REFERENCE;
+                weights += Footprint.boxed(weight);
+            }
+            edges += sign * adjacency.size();
+            entryBytes += sign * entries;
+            weightBytes += sign * weights;
+        }
+    }
+}
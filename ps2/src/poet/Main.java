@@ -5,6 +5,17 @@ package poet;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import metrics.Metrics;
 
 /**
  * Example program using GraphPoet.
@@ -13,16 +24,68 @@ import java.io.IOException;
  */
 public class Main {
     
+    private static final String DEFAULT_CORPUS = "src/poet/mugar-omni-theater.txt";
+    
     /**
-     * Generate example poetry.
+     * Generate example poetry, or serve poems over HTTP.
+     * 
+     * <p>With no arguments, prints one example poem. With
+     * {@code --serve [port] [corpus]}, loads the corpus once and runs a
+     * {@link PoemServer} on localhost until the process is killed. With
+     * {@code --batch}, writes a poem for every input line using {@link BatchPoet},
+     * taking options --input file, --output file (both default to the standard
+     * streams), --workers n, --candidates k, and either --corpus file or --graph
+     * edge-list file.
      * 
-     * @param args unused
+     * @param args none, --serve followed by optional port and corpus file, or --batch and its options
      * @throws IOException if a poet corpus file cannot be found or read
      */
     public static void main(String[] args) throws IOException {
-        final GraphPoet nimoy = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
+        if (args.length > 0 && args[0].equals("--serve")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+            File corpus = new File(args.length > 2 ? args[2] : DEFAULT_CORPUS);
+            int cores = Runtime.getRuntime().availableProcessors();
+            PoemServer server = new PoemServer(new GraphPoet(corpus),
+                    new InetSocketAddress("localhost", port), 2 * cores, 10_000, 1_000);
+            Metrics.registerMBean();
+            server.start();
+            System.out.println("Serving poems from " + corpus + " on http://localhost:" + server.port()
+                    + " (POST /poem, POST /poems)");
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--batch")) {
+            batch(args);
+            return;
+        }
+        final GraphPoet nimoy = new GraphPoet(new File(DEFAULT_CORPUS));
         final String input = "Test the system.";
         System.out.println(input + "\n>>>\n" + nimoy.poem(input));
     }
+
+    private static void batch(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            options.put(args[i], args[i + 1]);
+        }
+        GraphPoet poet = options.containsKey("--graph")
+                ? GraphPoet.fromEdgeList(new File(options.get("--graph")))
+                : new GraphPoet(new File(options.getOrDefault("--corpus", DEFAULT_CORPUS)));
+        int workers = Integer.parseInt(options.getOrDefault("--workers",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int candidates = Integer.parseInt(options.getOrDefault("--candidates", "0"));
+        String input = options.getOrDefault("--input", "-");
+        String output = options.getOrDefault("--output", "-");
+        // only files are closed; the standard streams stay open for the rest of the program
+        try (FileChannel inFile = input.equals("-") ? null
+                    : FileChannel.open(Paths.get(input), StandardOpenOption.READ);
+                FileChannel outFile = output.equals("-") ? null
+                    : FileChannel.open(Paths.get(output), StandardOpenOption.WRITE,
+                            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ReadableByteChannel in = inFile != null ? inFile : Channels.newChannel(System.in);
+            WritableByteChannel out = outFile != null ? outFile : Channels.newChannel(System.out);
+            new BatchPoet(poet, workers, candidates).run(in, out, System.err);
+        }
+        System.out.flush();
+    }
     
 }
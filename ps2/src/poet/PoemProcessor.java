@@ -0,0 +1,362 @@
+package poet;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A reactive stage that turns a stream of prompts into a stream of poems.
+ *
+ * <p>Subscribe it to a {@code Flow.Publisher<String>} of prompts, and
+ * subscribe one {@code Flow.Subscriber<String>} to it for the poems. Poems are
+ * generated on an executor, at most maxConcurrency at a time.
+ *
+ * <p>Buffering is bounded and demand-driven. Prompts requested from upstream,
+ * prompts waiting, poems being generated and poems waiting for downstream
+ * demand together never exceed bufferSize. A slow subscriber therefore
+ * throttles both generation and the upstream publisher. No thread ever blocks
+ * waiting for demand or results, so a stalled pipeline holds no threads.
+ *
+ * <p>In ordered mode, poems are delivered in prompt order; otherwise each poem
+ * is delivered as soon as it is ready. An upstream error, or a failure to
+ * generate a poem, is passed on to the subscriber at once, and poems not yet
+ * delivered are dropped. So is an executor that rejects a task.
+ */
+public class PoemProcessor implements Flow.Processor<String, String> {
+
+    private final GraphPoet poet;
+    private final Executor executor;
+    private final int maxConcurrency;
+    private final int bufferSize;
+    private final boolean ordered;
+
+    /* Serializes drain(): only the thread that raises wip from 0 runs the drain loop. */
+    private final AtomicInteger wip = new AtomicInteger();
+    private final Object lock = new Object();
+
+    // Fields below are guarded by lock.
+    private Flow.Subscription upstream;
+    private Flow.Subscriber<? super String> downstream;
+    private boolean subscribed;
+    private final ArrayDeque<Prompt> prompts = new ArrayDeque<>();
+    private final ArrayDeque<String> readyInArrivalOrder = new ArrayDeque<>();
+    private final Map<Long, String> readyBySequence = new HashMap<>();
+    private long nextSequence;
+    private long nextToEmit;
+    private int running;
+    private long outstanding;
+    private long demand;
+    private boolean upstreamDone;
+    private Throwable error;
+    private boolean cancelled;
+    private boolean terminated;
+
+    // Abstraction function:
+    //   A pipeline stage whose prompts are waiting in prompts, running on executor
+    //   (running of them), or finished in readyInArrivalOrder (unordered mode) or
+    //   readyBySequence (ordered mode); outstanding more prompts were requested
+    //   from upstream, and downstream asked for demand more poems.
+    // Representation invariant:
+    //   0 <= running <= maxConcurrency
+    //   outstanding + prompts.size() + running + ready() <= bufferSize
+    //   demand >= 0
+    //   in ordered mode, every key of readyBySequence is >= nextToEmit
+    // Safety from rep exposure:
+    //   all fields are private; subscribers only receive Strings and a Subscription.
+    // Thread safety argument:
+    //   mutable state is only touched while holding lock; subscriber signals are
+    //   sent outside the lock, from the single thread running the drain loop,
+    //   so they are serialized as the Flow specification requires.
+
+    /**
+     * Create an unordered processor on the common fork-join pool, with
+     * one poem per core at a time and a buffer of 256.
+     * @param poet poet to generate poems with
+     */
+    public PoemProcessor(GraphPoet poet) {
+        this(poet, ForkJoinPool.commonPool(), Runtime.getRuntime().availableProcessors(), 256, false);
+    }
+
+    /**
+     * Create a processor.
+     * @param poet poet to generate poems with
+     * @param executor runs poem generation; tasks never block
+     * @param maxConcurrency maximum poems generated at once, must be positive
+     * @param bufferSize maximum prompts and poems held by the processor, at least maxConcurrency
+     * @param ordered true to deliver poems in prompt order
+     */
+    public PoemProcessor(GraphPoet poet, Executor executor, int maxConcurrency, int bufferSize, boolean ordered) {
+        if (maxConcurrency <= 0 || bufferSize < maxConcurrency) {
+            throw new IllegalArgumentException("Invalid concurrency or buffer size");
+        }
+        this.poet = Objects.requireNonNull(poet);
+        this.executor = Objects.requireNonNull(executor);
+        this.maxConcurrency = maxConcurrency;
+        this.bufferSize = bufferSize;
+        this.ordered = ordered;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        Objects.requireNonNull(subscription);
+        synchronized (lock) {
+            if (upstream != null || cancelled) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+        }
+        drain();
+    }
+
+    @Override
+    public void onNext(String prompt) {
+        Objects.requireNonNull(prompt);
+        synchronized (lock) {
+            if (upstreamDone) {
+                return;
+            }
+            outstanding--;
+            prompts.addLast(new Prompt(nextSequence++, prompt));
+        }
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        Objects.requireNonNull(throwable);
+        synchronized (lock) {
+            upstreamDone = true;
+            if (error == null) {
+                error = throwable;
+            }
+        }
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        synchronized (lock) {
+            upstreamDone = true;
+        }
+        drain();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super String> subscriber) {
+        Objects.requireNonNull(subscriber);
+        boolean accepted;
+        synchronized (lock) {
+            accepted = !subscribed;
+            subscribed = true;
+        }
+        if (!accepted) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override public void request(long n) { }
+                @Override public void cancel() { }
+            });
+            subscriber.onError(new IllegalStateException("PoemProcessor supports a single subscriber"));
+            return;
+        }
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override public void request(long n) {
+                synchronized (lock) {
+                    if (n <= 0) {
+                        if (error == null) {
+                            error = new IllegalArgumentException("Subscriber requested " + n + " poems");
+                        }
+                    } else {
+                        demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                    }
+                }
+                drain();
+            }
+
+            @Override public void cancel() {
+                synchronized (lock) {
+                    cancelled = true;
+                }
+                drain();
+            }
+        });
+        synchronized (lock) {
+            downstream = subscriber;
+        }
+        drain();
+    }
+
+    /*
+     * Deliver ready poems, start waiting prompts, top up upstream demand, and
+     * send terminal signals. Runs on one thread at a time; calls that arrive
+     * while it runs make it loop again instead of running concurrently.
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            drainOnce();
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void drainOnce() {
+        Flow.Subscriber<? super String> subscriber;
+        Flow.Subscription source;
+        List<Prompt> toStart = new ArrayList<>();
+        long toRequest = 0;
+        Throwable failure;
+        boolean complete = false;
+        boolean cancelSource = false;
+
+        while (true) {
+            String poem = null;
+            synchronized (lock) {
+                if (terminated) {
+                    return;
+                }
+                subscriber = downstream;
+                if (cancelled || (error != null && subscriber != null)) {
+                    break;
+                }
+                if (subscriber != null && demand > 0) {
+                    poem = pollReady();
+                    if (poem != null) {
+                        demand--;
+                    }
+                }
+            }
+            if (poem == null) {
+                break;
+            }
+            subscriber.onNext(poem);
+        }
+
+        synchronized (lock) {
+            source = upstream;
+            failure = error;
+            if (cancelled) {
+                terminated = true;
+                cancelSource = !upstreamDone;
+                clear();
+                failure = null;
+            } else if (failure != null && subscriber != null) {
+                terminated = true;
+                cancelSource = !upstreamDone;
+                clear();
+            } else if (upstreamDone && subscriber != null && prompts.isEmpty() && running == 0 && ready() == 0) {
+                terminated = true;
+                complete = true;
+            } else {
+                failure = null;
+                while (running < maxConcurrency && !prompts.isEmpty()) {
+                    toStart.add(prompts.pollFirst());
+                    running++;
+                }
+                long held = outstanding + prompts.size() + running + ready();
+                if (!upstreamDone && source != null && held < bufferSize) {
+                    toRequest = bufferSize - held;
+                    outstanding += toRequest;
+                }
+            }
+        }
+
+        if (cancelSource && source != null) {
+            source.cancel();
+        }
+        if (failure != null) {
+            subscriber.onError(failure);
+        } else if (complete) {
+            subscriber.onComplete();
+        }
+        for (int i = 0; i < toStart.size(); i++) {
+            Prompt prompt = toStart.get(i);
+            try {
+                executor.execute(() -> generate(prompt));
+            } catch (RejectedExecutionException e) {
+                // this prompt and the ones after it never run; fail the stream on the next pass
+                synchronized (lock) {
+                    running -= toStart.size() - i;
+                    if (error == null) {
+                        error = e;
+                    }
+                }
+                drain();
+                return;
+            }
+        }
+        if (toRequest > 0) {
+            source.request(toRequest);
+        }
+    }
+
+    /* Runs on the executor: generate one poem and hand it back to the drain loop. */
+    private void generate(Prompt prompt) {
+        String poem = null;
+        Throwable failure = null;
+        try {
+            poem = poet.poem(prompt.text);
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        }
+        synchronized (lock) {
+            running--;
+            if (failure != null) {
+                if (error == null) {
+                    error = failure;
+                }
+            } else if (!terminated) {
+                if (ordered) {
+                    readyBySequence.put(prompt.sequence, poem);
+                } else {
+                    readyInArrivalOrder.addLast(poem);
+                }
+            }
+        }
+        drain();
+    }
+
+    /* Requires lock. */
+    private String pollReady() {
+        if (!ordered) {
+            return readyInArrivalOrder.pollFirst();
+        }
+        String poem = readyBySequence.remove(nextToEmit);
+        if (poem != null) {
+            nextToEmit++;
+        }
+        return poem;
+    }
+
+    /* Requires lock. */
+    private int ready() {
+        return ordered ? readyBySequence.size() : readyInArrivalOrder.size();
+    }
+
+    /* Requires lock. */
+    private void clear() {
+        prompts.clear();
+        readyInArrivalOrder.clear();
+        readyBySequence.clear();
+    }
+
+    /* A prompt and its position in the input stream. */
+    private static class Prompt {
+        final long sequence;
+        final String text;
+
+        Prompt(long sequence, String text) {
+            this.sequence = sequence;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package poet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * HTTP server that generates poems from one shared GraphPoet.
+ *
+ * <p>Endpoints:
+ * <ul>
+ * <li>POST /poem: the request body is one input; the response is its poem.
+ * <li>POST /poems: each line of the request body is an input; the response has
+ *     one poem per line, in the same order.
+ * </ul>
+ * Both accept an optional query parameter candidates=k, passed to
+ * {@link GraphPoet#poem(String, int)}.
+ *
+ * <p>Each request runs on its own virtual thread when the JVM supports them,
+ * otherwise on a bounded pool of maxConcurrent + maxQueued threads. Either way,
+ * at most maxConcurrent requests read their body and generate poems at once,
+ * and at most maxQueued more wait, each for at most queueTimeoutMillis.
+ * Requests beyond that are shed with 503 Service Unavailable, before their
+ * body is read, so overload shows up as fast rejections instead of growing
+ * latency.
+ *
+ * <p>The poet is shared read-only: poem() never modifies the affinity graph,
+ * so requests need no locking.
+ */
+public class PoemServer {
+
+    /** Largest accepted request body, in bytes. */
+    static final int MAX_BODY_BYTES = 1 << 20;
+
+    /** Largest number of inputs accepted by one /poems request. */
+    static final int MAX_BATCH_LINES = 10_000;
+
+    private final GraphPoet poet;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore running;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final ThreadLocal<Boolean> rejected = ThreadLocal.withInitial(() -> false);
+    private final int maxQueued;
+    private final long queueTimeoutMillis;
+
+    // Abstraction function:
+    //   A poem service bound to server's address, answering with poet, that admits
+    //   a request when a running permit is free or maxQueued - queued waiters remain.
+    // Representation invariant:
+    //   0 <= queued <= maxQueued, outside of admission
+    // Safety from rep exposure:
+    //   all fields are private; the poet is never returned.
+    // Thread safety argument:
+    //   poet is only read; admission state is a Semaphore and an AtomicInteger;
+    //   rejected is only set around the one exchange a thread answers with 503.
+
+    /**
+     * Create a server; it does not accept connections until start().
+     *
+     * @param poet poet to generate poems with
+     * @param address address to listen on; port 0 picks a free port
+     * @param maxConcurrent maximum requests generating poems at once, must be positive
+     * @param maxQueued maximum requests waiting for a turn, nonnegative
+     * @param queueTimeoutMillis longest a queued request waits before it is shed
+     * @throws IOException if the address cannot be bound
+     */
+    public PoemServer(GraphPoet poet, InetSocketAddress address, int maxConcurrent, int maxQueued,
+            long queueTimeoutMillis) throws IOException {
+        if (maxConcurrent <= 0 || maxQueued < 0 || queueTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Invalid server limits");
+        }
+        this.poet = poet;
+        this.running = new Semaphore(maxConcurrent);
+        this.maxQueued = maxQueued;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.server = HttpServer.create(address, 1024);
+        ExecutorService virtualThreads = newVirtualThreadExecutor();
+        this.executor = virtualThreads != null ? virtualThreads : newPool(maxConcurrent, maxQueued);
+        server.setExecutor(executor);
+        server.createContext("/poem", exchange -> handle(exchange, false));
+        server.createContext("/poems", exchange -> handle(exchange, true));
+    }
+
+    /**
+     * Start accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop accepting requests, let running requests finish for up to delaySeconds,
+     * and release the executor.
+     * @param delaySeconds longest to wait for running requests
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    /**
+     * @return port the server listens on
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange, boolean batch) throws IOException {
+        try (HttpExchange ex = exchange) {
+            if (!"POST".equals(ex.getRequestMethod())) {
+                ex.getResponseHeaders().set("Allow", "POST");
+                respond(ex, 405, "Use POST\n");
+                return;
+            }
+            String expected = batch ? "/poems" : "/poem";
+            if (!ex.getRequestURI().getPath().equals(expected)) {
+                respond(ex, 404, "Not found\n");
+                return;
+            }
+            int candidates;
+            try {
+                candidates = candidateLimit(ex.getRequestURI().getRawQuery());
+            } catch (IllegalArgumentException e) {
+                respond(ex, 400, "Invalid candidates parameter\n");
+                return;
+            }
+            if (rejected.get() || !admit()) {
+                ex.getResponseHeaders().set("Retry-After", "1");
+                respond(ex, 503, "Server overloaded\n");
+                return;
+            }
+            try {
+                byte[] body = readBody(ex.getRequestBody());
+                if (body == null) {
+                    respond(ex, 413, "Request body too large\n");
+                    return;
+                }
+                String input = new String(body, StandardCharsets.UTF_8);
+                if (!batch) {
+                    respond(ex, 200, poet.poem(input.trim(), candidates));
+                    return;
+                }
+                String[] lines = input.split("\r?\n", -1);
+                int count = lines.length > 0 && lines[lines.length - 1].isEmpty() ? lines.length - 1 : lines.length;
+                if (count > MAX_BATCH_LINES) {
+                    respond(ex, 413, "Too many inputs\n");
+                    return;
+                }
+                StringBuilder poems = new StringBuilder();
+                for (int i = 0; i < count; i++) {
+                    poems.append(poet.poem(lines[i], candidates)).append('\n');
+                }
+                respond(ex, 200, poems.toString());
+            } finally {
+                running.release();
+            }
+        }
+    }
+
+    /*
+     * Take a running permit, waiting in the bounded queue if none is free.
+     * Returns false if the request must be shed.
+     */
+    private boolean admit() {
+        if (running.tryAcquire()) {
+            return true;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            return false;
+        }
+        try {
+            return running.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    /* Returns the body, or null if it is longer than MAX_BODY_BYTES. */
+    private static byte[] readBody(InputStream in) throws IOException {
+        byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+        return body.length > MAX_BODY_BYTES ? null : body;
+    }
+
+    private static int candidateLimit(String query) {
+        if (query == null) {
+            return 0;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith("candidates=")) {
+                int limit = Integer.parseInt(parameter.substring("candidates=".length()));
+                if (limit < 0) {
+                    throw new IllegalArgumentException("negative candidate limit");
+                }
+                return limit;
+            }
+        }
+        return 0;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /*
+     * Virtual threads make a blocked request cost a few hundred bytes instead of
+     * a platform thread, so every request gets one and waits for admission on
+     * the semaphore. They are looked up reflectively so the project still
+     * builds on JDKs that predate them; returns null without them.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /*
+     * Without virtual threads, a bounded pool with one thread per running or
+     * waiting request, which hands each request straight to a free thread; the
+     * waiting threads are the bounded queue, timed by admit(). A request that
+     * finds every thread busy is answered 503 on the server's dispatcher thread,
+     * which only writes a short response.
+     */
+    private ExecutorService newPool(int maxConcurrent, int maxQueued) {
+        int threads = maxConcurrent + maxQueued;
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), (exchange, rejecting) -> {
+                    if (rejecting.isShutdown()) {
+                        return;
+                    }
+                    rejected.set(true);
+                    try {
+                        exchange.run();
+                    } finally {
+                        rejected.set(false);
+                    }
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
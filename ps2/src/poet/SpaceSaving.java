@@ -0,0 +1,163 @@
+package poet;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A Space-Saving heavy-hitter summary: tracks at most a fixed number of keys
+ * from a stream, keeping the ones that occur most often.
+ *
+ * <p>Every key whose true count exceeds N / capacity is guaranteed to be
+ * tracked, where N is the total count offered. The count reported for a tracked
+ * key never undercounts, and overcounts by at most {@link #error(String)}.
+ */
+public class SpaceSaving {
+
+    private final int capacity;
+    private final Map<String, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> byCount = new TreeSet<>();
+    private long total;
+
+    // Abstraction function:
+    //   Represents the top keys of a stream: each key in counters has an
+    //   estimated count counters.get(key).count, which overestimates the true
+    //   count by at most counters.get(key).error.
+    //
+    // Representation invariant:
+    //   capacity > 0
+    //   counters.size() <= capacity
+    //   byCount contains exactly the values of counters
+    //   for each counter c: 0 <= c.error <= c.count
+    //
+    // Safety from rep exposure:
+    //   counters and byCount are private; Counter objects are never returned,
+    //   only primitive counts and an unmodifiable copy of the estimates.
+
+    /**
+     * Creates an empty summary.
+     *
+     * @param capacity maximum number of keys to track, must be positive
+     */
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert capacity > 0;
+        assert counters.size() <= capacity;
+        assert byCount.size() == counters.size();
+    }
+
+    /**
+     * Records one occurrence of a key, evicting the least frequent tracked key
+     * if the summary is full.
+     *
+     * @param key key to record, not null
+     */
+    public void offer(String key) {
+        total++;
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            byCount.remove(counter);
+            counter.count++;
+            byCount.add(counter);
+            return;
+        }
+        if (counters.size() < capacity) {
+            counter = new Counter(key, 1, 0);
+        } else {
+            Counter min = byCount.pollFirst();
+            counters.remove(min.key);
+            counter = new Counter(key, min.count + 1, min.count);
+        }
+        counters.put(key, counter);
+        byCount.add(counter);
+    }
+
+    /**
+     * @param key key to look up
+     * @return estimated count of key, or 0 if it is not tracked
+     */
+    public long count(String key) {
+        Counter counter = counters.get(key);
+        return counter == null ? 0 : counter.count;
+    }
+
+    /**
+     * @param key key to look up
+     * @return maximum overcount of count(key), or 0 if it is not tracked
+     */
+    public long error(String key) {
+        Counter counter = counters.get(key);
+        return counter == null ? 0 : counter.error;
+    }
+
+    /**
+     * @return smallest tracked count; any untracked key occurred at most this often
+     */
+    public long minCount() {
+        return byCount.isEmpty() ? 0 : byCount.first().count;
+    }
+
+    /**
+     * @return total number of occurrences offered so far
+     */
+    public long totalCount() {
+        return total;
+    }
+
+    /**
+     * @return maximum number of tracked keys
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of keys currently tracked
+     */
+    public int size() {
+        return counters.size();
+    }
+
+    /**
+     * @return map from each tracked key to its estimated count
+     */
+    public Map<String, Long> counts() {
+        Map<String, Long> result = new HashMap<>();
+        for (Counter counter : counters.values()) {
+            result.put(counter.key, counter.count);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Override public String toString() {
+        return "SpaceSaving(" + counters.size() + "/" + capacity + ", total=" + total + ")";
+    }
+
+    /*
+     * A tracked key, ordered by count and then by key so that byCount is a total order.
+     */
+    private static class Counter implements Comparable<Counter> {
+        final String key;
+        long count;
+        final long error;
+
+        Counter(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        @Override public int compareTo(Counter that) {
+            int byCount = Long.compare(this.count, that.count);
+            return byCount != 0 ? byCount : this.key.compareTo(that.key);
+        }
+    }
+}
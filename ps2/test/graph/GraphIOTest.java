@@ -0,0 +1,103 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for GraphIO formats. Round trips through every Graph implementation
+ * are in GraphInstanceTest.
+ */
+public class GraphIOTest {
+
+    // Testing strategy
+    //   writeEdgeList: vertex with and without targets, label needing escapes;
+    //     to a Writer, to a channel with non-ASCII labels
+    //   writeDot: empty graph, graph with an edge and a label needing escapes
+    //   readEdgeList: vertex lines, edges of one source on several lines,
+    //     blank lines; malformed field count, weight, escape
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testWriteEdgeListEscapes() throws IOException {
+        Graph<String> graph = Graph.empty();
+        graph.set("a\tb", "c\\d", 7);
+        StringWriter out = new StringWriter();
+        GraphIO.writeEdgeList(graph, out);
+        String text = out.toString();
+        assertTrue("expected escaped edge line", text.contains("a\\tb\tc\\\\d\t7\n"));
+        assertTrue("expected line for vertex without targets", text.contains("\nc\\\\d\n") || text.startsWith("c\\\\d\n"));
+    }
+
+    @Test
+    public void testWriteEdgeListChannelUtf8() throws IOException {
+        Graph<String> graph = Graph.empty();
+        graph.set("caf\u00e9", "na\u00efve", 12345);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        assertEquals("expected one edge", 1, GraphIO.writeEdgeList(graph, Channels.newChannel(bytes)));
+        assertTrue("expected UTF-8 edge line",
+                new String(bytes.toByteArray(), StandardCharsets.UTF_8).contains("caf\u00e9\tna\u00efve\t12345\n"));
+
+        Graph<String> copy = Graph.empty();
+        GraphIO.readEdgeList(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), copy);
+        assertEquals("expected edge read back", Map.of("na\u00efve", 12345), copy.targets("caf\u00e9"));
+    }
+
+    @Test
+    public void testWriteDotEmpty() throws IOException {
+        StringWriter out = new StringWriter();
+        assertEquals("expected no edges", 0, GraphIO.writeDot(Graph.empty(), out));
+        assertEquals("expected empty digraph", "digraph {\n}\n", out.toString());
+    }
+
+    @Test
+    public void testWriteDotEdge() throws IOException {
+        Graph<String> graph = Graph.empty();
+        graph.set("say \"hi\"", "b", 3);
+        StringWriter out = new StringWriter();
+        assertEquals("expected one edge", 1, GraphIO.writeDot(graph, out));
+        String text = out.toString();
+        assertTrue("expected header", text.startsWith("digraph {\n"));
+        assertTrue("expected quoted node", text.contains("  \"say \\\"hi\\\"\";\n"));
+        assertTrue("expected weighted edge", text.contains("  \"say \\\"hi\\\"\" -> \"b\" [weight=3, label=3];\n"));
+        assertTrue("expected footer", text.endsWith("}\n"));
+    }
+
+    @Test
+    public void testReadEdgeListGroupsAndVertices() throws IOException {
+        Graph<String> graph = Graph.empty();
+        long edges = GraphIO.readEdgeList(new StringReader("a\tb\t1\n\na\tc\t2\nb\ta\t3\nlonely\na\td\t4\n"), graph);
+        assertEquals("expected four edges", 4, edges);
+        assertEquals("expected all vertices", Set.of("a", "b", "c", "d", "lonely"), graph.vertices());
+        assertEquals("expected edges of a from both runs", Map.of("b", 1, "c", 2, "d", 4), graph.targets("a"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadEdgeListMissingWeight() throws IOException {
+        GraphIO.readEdgeList(new StringReader("a\tb\n"), Graph.empty());
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadEdgeListBadWeight() throws IOException {
+        GraphIO.readEdgeList(new StringReader("a\tb\tmany\n"), Graph.empty());
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadEdgeListBadEscape() throws IOException {
+        GraphIO.readEdgeList(new StringReader("a\\x\tb\t1\n"), Graph.empty());
+    }
+}
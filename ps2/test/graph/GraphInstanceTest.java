@@ -1,10 +1,16 @@
 package graph;
 
 import static org.junit.Assert.*;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.HashMap;
+import java.util.HashSet;
 
 import org.junit.Test;
 
@@ -50,6 +56,40 @@ public abstract class GraphInstanceTest {
         assertEquals("expected weight of edge A->B to be 5", (Integer) 5, graph.targets("A").get("B"));
     }
     
+    @Test
+    public void testSetExistingEdgeReturnsPreviousWeight() {
+        Graph<String> graph = emptyInstance();
+        graph.add("A");
+        graph.add("B");
+        graph.set("A", "B", 5);
+        assertEquals("expected previous weight on update", 5, graph.set("A", "B", 7));
+        assertEquals("expected one edge with the new weight", Map.of("B", 7), graph.targets("A"));
+        assertEquals("expected previous weight on removal", 7, graph.set("A", "B", 0));
+        assertEquals("expected edge removed", Collections.emptyMap(), graph.targets("A"));
+    }
+
+    @Test
+    public void testSetAddsMissingVertices() {
+        Graph<String> graph = emptyInstance();
+        assertEquals("expected 0 as previous weight", 0, graph.set("A", "B", 5));
+        assertEquals("expected both endpoints added", Set.of("A", "B"), graph.vertices());
+        assertEquals("expected the edge", Map.of("B", 5), graph.targets("A"));
+        graph.set("C", "D", 0);
+        assertEquals("expected endpoints added even without an edge", Set.of("A", "B", "C", "D"), graph.vertices());
+        assertEquals("expected no edge of weight 0", Collections.emptyMap(), graph.targets("C"));
+    }
+
+    // Tests for addEdge()
+
+    @Test
+    public void testAddEdge() {
+        Graph<String> graph = emptyInstance();
+        graph.addEdge("p", "q", 2);
+        assertEquals("expected the edge", Map.of("q", 2), graph.targets("p"));
+        assertEquals("expected the reverse view", Map.of("p", 2), graph.sources("q"));
+        graph.addEdge("p", "q", 3);
+        assertEquals("expected the weight replaced", Map.of("q", 3), graph.targets("p"));
+    }
 
     // Tests for remove()
     
@@ -91,4 +131,288 @@ public abstract class GraphInstanceTest {
         graph.add("A");
         assertEquals("expected no targets for A", Collections.emptyMap(), graph.targets("A"));
     }
+
+    // Tests for prune()
+
+    @Test
+    public void testPruneRemovesLightEdgesAndOrphans() {
+        Graph<String> graph = emptyInstance();
+        graph.add("A");
+        graph.add("B");
+        graph.add("C");
+        graph.add("D");
+        graph.set("A", "B", 5);
+        graph.set("B", "C", 1);
+
+        PruneResult result = graph.prune(1, 2);
+        assertEquals("expected light edge removed", 1, result.edgesRemoved());
+        assertEquals("expected orphaned vertices removed", 2, result.verticesRemoved());
+        assertTrue("expected reclaimed bytes reported", result.bytesReclaimed() > 0);
+        assertEquals("expected A and B kept", Set.of("A", "B"), graph.vertices());
+        assertEquals("expected heavy edge kept", (Integer) 5, graph.targets("A").get("B"));
+    }
+
+    @Test
+    public void testPruneReclaimsWhatMemoryStatsCounts() {
+        Graph<String> graph = emptyInstance();
+        graph.add("A");
+        graph.add("B");
+        graph.add("C");
+        graph.add("D");
+        graph.set("A", "B", 1);
+        graph.set("A", "C", 500);
+        graph.set("A", "D", 2000);
+        graph.set("D", "A", 2000);
+        long before = graph.memoryStats().totalBytes();
+
+        PruneResult result = graph.prune(0, 1000);
+        assertEquals("expected light edges removed", 2, result.edgesRemoved());
+        assertEquals("expected reclaimed bytes to match the footprint estimate",
+                before - graph.memoryStats().totalBytes(), result.bytesReclaimed());
+    }
+
+    @Test
+    public void testPruneVerticesReclaimsWhatMemoryStatsCounts() {
+        Graph<String> graph = emptyInstance();
+        for (String vertex : List.of("A", "B", "C", "D", "lonely")) {
+            graph.add(vertex);
+        }
+        graph.set("A", "B", 5);
+        graph.set("B", "A", 5);
+        graph.set("A", "C", 5);
+        graph.set("C", "D", 1);
+        long before = graph.memoryStats().totalBytes();
+
+        // C -> D goes first, leaving C and D with degree 1 and "lonely" with 0
+        PruneResult result = graph.prune(2, 2);
+        assertEquals("expected under-connected vertices removed", 3, result.verticesRemoved());
+        assertEquals("expected light edge and edges of removed vertices gone", 2, result.edgesRemoved());
+        assertEquals("expected A and B kept", Set.of("A", "B"), graph.vertices());
+        assertEquals("expected reclaimed bytes to include removed vertices",
+                before - graph.memoryStats().totalBytes(), result.bytesReclaimed());
+    }
+
+    @Test
+    public void testPruneNothingToRemove() {
+        Graph<String> graph = emptyInstance();
+        graph.add("A");
+        graph.add("B");
+        graph.set("A", "B", 3);
+
+        PruneResult result = graph.prune(0, 0);
+        assertEquals("expected no edges removed", 0, result.edgesRemoved());
+        assertEquals("expected no vertices removed", 0, result.verticesRemoved());
+        assertEquals("expected vertices unchanged", Set.of("A", "B"), graph.vertices());
+    }
+
+    // Tests for topTargets() and topSources()
+
+    @Test
+    public void testTopTargetsOrderedByWeight() {
+        Graph<String> graph = emptyInstance();
+        graph.add("A");
+        graph.add("B");
+        graph.add("C");
+        graph.add("D");
+        graph.set("A", "B", 1);
+        graph.set("A", "C", 7);
+        graph.set("A", "D", 4);
+
+        List<String> top = new ArrayList<>(graph.topTargets("A", 2).keySet());
+        assertEquals("expected two heaviest targets, heaviest first", List.of("C", "D"), top);
+        assertEquals("expected all targets when k exceeds degree", 3, graph.topTargets("A", 10).size());
+    }
+
+    @Test
+    public void testTopSourcesSeesLaterEdges() {
+        Graph<String> graph = emptyInstance();
+        graph.add("A");
+        graph.add("B");
+        graph.add("C");
+        graph.set("A", "C", 2);
+        assertEquals("expected single source", Set.of("A"), graph.topSources("C", 1).keySet());
+
+        graph.set("B", "C", 9);
+        assertEquals("expected new heavier source", Set.of("B"), graph.topSources("C", 1).keySet());
+    }
+
+    // Tests for live views and forEach visitors
+
+    @Test
+    public void testVerticesViewReflectsLaterAdd() {
+        Graph<String> graph = emptyInstance();
+        Set<String> vertices = graph.vertices();
+        graph.add("A");
+        assertTrue("expected view to show vertex added later", vertices.contains("A"));
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void testTargetsViewUnmodifiable() {
+        Graph<String> graph = emptyInstance();
+        graph.add("A");
+        graph.add("B");
+        graph.set("A", "B", 1);
+        graph.targets("A").put("C", 2);
+    }
+
+    @Test
+    public void testForEachTargetAndSource() {
+        Graph<String> graph = emptyInstance();
+        graph.add("A");
+        graph.add("B");
+        graph.add("C");
+        graph.set("A", "B", 3);
+        graph.set("C", "B", 4);
+
+        Map<String, Integer> targets = new HashMap<>();
+        graph.forEachTarget("A", targets::put);
+        assertEquals("expected visited targets", Map.of("B", 3), targets);
+
+        Map<String, Integer> sources = new HashMap<>();
+        graph.forEachSource("B", sources::put);
+        assertEquals("expected visited sources", Map.of("A", 3, "C", 4), sources);
+
+        Set<String> vertices = new HashSet<>();
+        graph.forEachVertex(vertices::add);
+        assertEquals("expected visited vertices", Set.of("A", "B", "C"), vertices);
+    }
+
+    @Test
+    public void testForEachEdge() {
+        Graph<String> graph = emptyInstance();
+        graph.set("A", "B", 3);
+        graph.set("C", "B", 4);
+        graph.set("A", "C", 1);
+        graph.set("A", "B", 5);
+        graph.add("D");
+
+        Map<String, Integer> edges = new HashMap<>();
+        graph.forEachEdge((source, target, weight) ->
+                assertNull("expected each edge once", edges.put(source + "->" + target, weight)));
+        assertEquals("expected every edge with its latest weight", Map.of("A->B", 5, "C->B", 4, "A->C", 1), edges);
+    }
+
+    // Tests for memoryStats()
+
+    @Test
+    public void testMemoryStatsCounts() {
+        Graph<String> graph = emptyInstance();
+        assertEquals("expected no edges in empty graph", 0, graph.memoryStats().edgeCount());
+
+        graph.add("A");
+        graph.add("B");
+        graph.set("A", "B", 1000);
+        MemoryStats stats = graph.memoryStats();
+        assertEquals("expected two vertices", 2, stats.vertexCount());
+        assertEquals("expected one edge", 1, stats.edgeCount());
+        assertTrue("expected label bytes counted", stats.labelBytes() > 0);
+        assertTrue("expected weight bytes counted", stats.weightBytes() > 0);
+        assertEquals("expected no corpus", 0, stats.corpusBytes());
+    }
+
+    @Test
+    public void testMemoryStatsTracksMutations() {
+        Graph<String> graph = emptyInstance();
+        for (String vertex : List.of("A", "B", "C", "D")) {
+            graph.add(vertex);
+        }
+        graph.set("A", "B", 1000);
+        graph.set("A", "B", 5);
+        graph.set("B", "C", 2000);
+        graph.set("C", "A", 3);
+        graph.set("C", "A", 0);
+        graph.setAll("D", Map.of("A", 4000, "B", 7));
+        graph.remove("C");
+        graph.set("A", "D", 1);
+        graph.prune(0, 2);
+
+        Graph<String> direct = emptyInstance();
+        for (String vertex : List.of("A", "B", "D")) {
+            direct.add(vertex);
+        }
+        direct.set("A", "B", 5);
+        direct.set("D", "A", 4000);
+        direct.set("D", "B", 7);
+        MemoryStats expected = direct.memoryStats();
+        MemoryStats actual = graph.memoryStats();
+        assertEquals("expected same edge count", expected.edgeCount(), actual.edgeCount());
+        assertEquals("expected same vertex count", expected.vertexCount(), actual.vertexCount());
+        assertEquals("expected same label bytes", expected.labelBytes(), actual.labelBytes());
+        assertEquals("expected same weight bytes", expected.weightBytes(), actual.weightBytes());
+        assertEquals("expected same total", expected.totalBytes(), actual.totalBytes());
+    }
+
+    // Tests for setAll()
+
+    @Test
+    public void testSetAllAddsVerticesAndEdges() {
+        Graph<String> graph = emptyInstance();
+        graph.setAll("A", Map.of("B", 2, "C", 3));
+        assertEquals("expected source and targets added", Set.of("A", "B", "C"), graph.vertices());
+        assertEquals("expected all edges set", Map.of("B", 2, "C", 3), graph.targets("A"));
+        assertEquals("expected edge visible from target", Map.of("A", 3), graph.sources("C"));
+    }
+
+    @Test
+    public void testSetAllOverwritesAndRemoves() {
+        Graph<String> graph = emptyInstance();
+        graph.add("A");
+        graph.add("B");
+        graph.add("C");
+        graph.add("D");
+        graph.set("A", "B", 1);
+        graph.set("A", "C", 1);
+        graph.set("A", "D", 1);
+        graph.setAll("A", Map.of("B", 5, "C", 0));
+        assertEquals("expected B overwritten, C removed, D kept", Map.of("B", 5, "D", 1), graph.targets("A"));
+        assertEquals("expected sorted view to see new weights",
+                List.of("B", "D"), new ArrayList<>(graph.topTargets("A", 2).keySet()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetAllNegativeWeight() {
+        emptyInstance().setAll("A", Map.of("B", -1));
+    }
+
+    // Tests for GraphIO
+
+    @Test
+    public void testEdgeListRoundTrip() throws IOException {
+        Graph<String> graph = emptyInstance();
+        graph.add("lonely");
+        graph.add("A");
+        graph.add("B\tab\t");
+        graph.add("new\nline");
+        graph.set("A", "B\tab\t", 2);
+        graph.set("B\tab\t", "new\nline", 3);
+        graph.set("new\nline", "A", 4);
+
+        StringWriter out = new StringWriter();
+        assertEquals("expected three edges written", 3, GraphIO.writeEdgeList(graph, out));
+
+        Graph<String> copy = emptyInstance();
+        assertEquals("expected three edges read", 3, GraphIO.readEdgeList(new StringReader(out.toString()), copy));
+        assertEquals("expected same vertices", graph.vertices(), copy.vertices());
+        for (String vertex : graph.vertices()) {
+            assertEquals("expected same targets of " + vertex, graph.targets(vertex), copy.targets(vertex));
+        }
+    }
+
+    @Test
+    public void testEdgeListRepeatedEdgeRoundTrip() throws IOException {
+        // a -> b appears twice, and source a in two separate runs of lines
+        String edgeList = "a\tb\t1\nc\ta\t2\na\tb\t5\na\tc\t3\n";
+        Graph<String> graph = emptyInstance();
+        assertEquals("expected every line read", 4, GraphIO.readEdgeList(new StringReader(edgeList), graph));
+        assertEquals("expected the later weight kept once", Map.of("b", 5, "c", 3), graph.targets("a"));
+        assertEquals("expected one edge per pair", 3, graph.memoryStats().edgeCount());
+
+        StringWriter out = new StringWriter();
+        assertEquals("expected no duplicate written", 3, GraphIO.writeEdgeList(graph, out));
+        Graph<String> copy = emptyInstance();
+        GraphIO.readEdgeList(new StringReader(out.toString()), copy);
+        for (String vertex : graph.vertices()) {
+            assertEquals("expected same targets of " + vertex, graph.targets(vertex), copy.targets(vertex));
+        }
+    }
 }
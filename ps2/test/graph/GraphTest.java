@@ -0,0 +1,17 @@
+package graph;
+
+/**
+ * Tests for Graph.
+ * 
+ * This class runs the GraphInstanceTest tests against the Graph returned by
+ * Graph.empty().
+ */
+public class GraphTest extends GraphInstanceTest {
+    
+    /*
+     * Provide a Graph for tests in GraphInstanceTest.
+     */
+    @Override public Graph<String> emptyInstance() {
+        return Graph.empty();
+    }
+}
@@ -0,0 +1,73 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for SortedAdjacencyIndex.
+ */
+public class SortedAdjacencyIndexTest {
+
+    // Testing strategy
+    //   top(): cache hit, cache miss; k smaller than, larger than the degree
+    //   bound: within bound, exceeded by a later vertex, exceeded by one vertex alone
+    //   invalidate(): cached vertex
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static final Map<String, Map<String, Integer>> ADJACENCY = Map.of(
+            "a", Map.of("x", 1, "y", 3),
+            "b", Map.of("x", 2, "z", 5),
+            "hub", Map.of("x", 1, "y", 2, "z", 3, "w", 4));
+
+    @Test
+    public void testTopCachesUntilInvalidated() {
+        SortedAdjacencyIndex<String> index = new SortedAdjacencyIndex<>(100);
+        List<String> loads = new ArrayList<>();
+        assertEquals("expected heaviest first", List.of("y", "x"),
+                new ArrayList<>(index.top("a", 5, v -> load(v, loads)).keySet()));
+        assertEquals("expected only the heaviest", Map.of("y", 3), index.top("a", 1, v -> load(v, loads)));
+        assertEquals("expected one load while cached", List.of("a"), loads);
+
+        index.invalidate("a");
+        index.top("a", 1, v -> load(v, loads));
+        assertEquals("expected reload after invalidate", List.of("a", "a"), loads);
+    }
+
+    @Test
+    public void testBoundEvictsLeastRecentlyQueried() {
+        // each of a and b costs 3 entries, so both fit in 6 but not in 5
+        SortedAdjacencyIndex<String> roomy = new SortedAdjacencyIndex<>(6);
+        SortedAdjacencyIndex<String> tight = new SortedAdjacencyIndex<>(5);
+        List<String> roomyLoads = new ArrayList<>();
+        List<String> tightLoads = new ArrayList<>();
+        for (String vertex : List.of("a", "b", "a")) {
+            roomy.top(vertex, 1, v -> load(v, roomyLoads));
+            tight.top(vertex, 1, v -> load(v, tightLoads));
+        }
+        assertEquals("expected both kept within bound", List.of("a", "b"), roomyLoads);
+        assertEquals("expected a evicted by b", List.of("a", "b", "a"), tightLoads);
+    }
+
+    @Test
+    public void testAdjacencyLargerThanBound() {
+        SortedAdjacencyIndex<String> index = new SortedAdjacencyIndex<>(2);
+        List<String> loads = new ArrayList<>();
+        assertEquals("expected heaviest of a large adjacency", Map.of("w", 4), index.top("hub", 1, v -> load(v, loads)));
+        index.top("hub", 2, v -> load(v, loads));
+        assertEquals("expected lone large adjacency still cached", List.of("hub"), loads);
+    }
+
+    private static Map<String, Integer> load(String vertex, List<String> loads) {
+        loads.add(vertex);
+        return ADJACENCY.get(vertex);
+    }
+}
@@ -0,0 +1,203 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for Validation levels.
+ */
+public class ValidationTest {
+
+    // Testing strategy
+    //   level(): with assertions enabled, after setLevel to each level
+    //   checksTouched(): each level
+    //   checksAll(): each level; SAMPLED on and off a multiple of the interval
+    //   setLevel, setSampleInterval: valid and invalid arguments
+    //   graphs: Graph, ConcreteEdgesGraph, ConcreteVerticesGraph; many edits at
+    //     INCREMENTAL, SAMPLED and FULL leave a valid graph
+    //   violations, made by corrupting a rep directly: touched by the next
+    //     operation, not touched by it; caught or ignored at OFF, INCREMENTAL,
+    //     SAMPLED and FULL
+    //   GraphPoet levels are covered in GraphPoetTest, next to its package-private constructor
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private Validation savedLevel;
+    private int savedInterval;
+
+    @Before
+    public void saveSettings() {
+        savedLevel = Validation.level();
+        savedInterval = Validation.sampleInterval();
+    }
+
+    @After
+    public void restoreSettings() {
+        Validation.setLevel(savedLevel);
+        Validation.setSampleInterval(savedInterval);
+    }
+
+    @Test
+    public void testSetLevel() {
+        for (Validation level : Validation.values()) {
+            Validation.setLevel(level);
+            assertEquals("expected configured level with -ea", level, Validation.level());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetLevelNull() {
+        Validation.setLevel(null);
+    }
+
+    @Test
+    public void testChecksTouched() {
+        assertFalse("expected OFF to check nothing", Validation.OFF.checksTouched());
+        assertTrue("expected INCREMENTAL to check touched parts", Validation.INCREMENTAL.checksTouched());
+        assertTrue("expected SAMPLED to check touched parts", Validation.SAMPLED.checksTouched());
+        assertTrue("expected FULL to check touched parts", Validation.FULL.checksTouched());
+    }
+
+    @Test
+    public void testChecksAll() {
+        Validation.setSampleInterval(4);
+        assertFalse("expected OFF never to check all", Validation.OFF.checksAll(4));
+        assertFalse("expected INCREMENTAL never to check all", Validation.INCREMENTAL.checksAll(4));
+        assertTrue("expected FULL always to check all", Validation.FULL.checksAll(3));
+        assertFalse("expected SAMPLED to skip off the interval", Validation.SAMPLED.checksAll(3));
+        assertTrue("expected SAMPLED to check all on the interval", Validation.SAMPLED.checksAll(8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetSampleIntervalZero() {
+        Validation.setSampleInterval(0);
+    }
+
+    private static final List<Supplier<Graph<String>>> GRAPHS = List.of(
+            Graph::empty, ConcreteEdgesGraph::new, ConcreteVerticesGraph::new);
+
+    @Test
+    public void testManyEditsAtEachLevel() {
+        for (Validation level : new Validation[] { Validation.INCREMENTAL, Validation.SAMPLED, Validation.FULL }) {
+            Validation.setLevel(level);
+            Validation.setSampleInterval(50);
+            for (Supplier<Graph<String>> empty : GRAPHS) {
+                Graph<String> graph = empty.get();
+                for (int i = 0; i <= 500; i++) {
+                    graph.add("v" + i);
+                }
+                for (int i = 0; i < 500; i++) {
+                    graph.set("v" + i, "v" + (i + 1), i + 1);
+                }
+                graph.setAll("v0", Map.of("v2", 3, "v1", 0));
+                graph.remove("v250");
+                assertEquals("expected vertices less the removed one in " + graph.getClass(),
+                        500, graph.vertices().size());
+                assertTrue("expected edge into removed vertex gone", graph.targets("v249").isEmpty());
+                assertEquals("expected edges replaced by setAll", Map.of("v2", 3), graph.targets("v0"));
+            }
+        }
+    }
+
+    /* Private field of an object, for corrupting its rep. */
+    private static Object field(Object object, Class<?> owner, String name) throws ReflectiveOperationException {
+        Field field = owner.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(object);
+    }
+
+    private static void setField(Object object, Class<?> owner, String name, Object value)
+            throws ReflectiveOperationException {
+        Field field = owner.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(object, value);
+    }
+
+    /* True iff operation fails a rep check. */
+    private static boolean caught(Runnable operation) {
+        try {
+            operation.run();
+            return false;
+        } catch (AssertionError e) {
+            return true;
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGraphViolations() throws ReflectiveOperationException {
+        for (Validation level : Validation.values()) {
+            Validation.setLevel(level);
+            Validation.setSampleInterval(1);
+            Graph<String> graph = Graph.empty();
+            graph.set("a", "b", 1);
+            setField(graph, Graph.class, "edgeCount", -5L);
+            assertEquals("expected touched running total checked unless OFF at " + level,
+                    level != Validation.OFF, caught(() -> graph.set("a", "c", 1)));
+
+            Graph<String> other = Graph.empty();
+            other.set("a", "b", 1);
+            ((Map<String, Map<String, Integer>>) field(other, Graph.class, "adjacencyMap")).get("a").put("ghost", 1);
+            assertEquals("expected untouched edge checked only with the whole rep at " + level,
+                    level == Validation.SAMPLED || level == Validation.FULL, caught(() -> other.add("c")));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testConcreteEdgesGraphViolations() throws ReflectiveOperationException {
+        for (Validation level : Validation.values()) {
+            Validation.setLevel(level);
+            Validation.setSampleInterval(1);
+            ConcreteEdgesGraph graph = new ConcreteEdgesGraph();
+            graph.set("a", "b", 1);
+            ((List<Edge>) field(graph, ConcreteEdgesGraph.class, "edges")).add(new Edge("a", "b", 2));
+            assertEquals("expected touched duplicate edge caught unless OFF at " + level,
+                    level != Validation.OFF, caught(() -> graph.set("a", "b", 3)));
+
+            ConcreteEdgesGraph other = new ConcreteEdgesGraph();
+            other.set("a", "b", 1);
+            ((List<Edge>) field(other, ConcreteEdgesGraph.class, "edges")).add(new Edge("a", "b", 2));
+            assertEquals("expected untouched duplicate edge checked only with the whole rep at " + level,
+                    level == Validation.SAMPLED || level == Validation.FULL, caught(() -> other.set("a", "c", 1)));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testConcreteVerticesGraphViolations() throws ReflectiveOperationException {
+        for (Validation level : Validation.values()) {
+            Validation.setLevel(level);
+            Validation.setSampleInterval(1);
+            ConcreteVerticesGraph graph = new ConcreteVerticesGraph();
+            graph.add("a");
+            graph.add("b");
+            ((List<ConcreteVerticesGraph.Vertex>) field(graph, ConcreteVerticesGraph.class, "vertices"))
+                    .add(new ConcreteVerticesGraph.Vertex("a"));
+            assertEquals("expected touched duplicate vertex caught unless OFF at " + level,
+                    level != Validation.OFF, caught(() -> graph.set("a", "b", 1)));
+
+            ConcreteVerticesGraph other = new ConcreteVerticesGraph();
+            other.add("a");
+            other.add("b");
+            other.add("c");
+            List<ConcreteVerticesGraph.Vertex> vertices =
+                    (List<ConcreteVerticesGraph.Vertex>) field(other, ConcreteVerticesGraph.class, "vertices");
+            vertices.get(0).setEdge("ghost", 1);
+            assertEquals("expected untouched edge to a missing vertex checked only with the whole rep at "
+                    + level, level == Validation.SAMPLED || level == Validation.FULL,
+                    caught(() -> other.set("b", "c", 1)));
+        }
+    }
+}
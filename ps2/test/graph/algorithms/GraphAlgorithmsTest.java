@@ -0,0 +1,258 @@
+package graph.algorithms;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import graph.ConcreteEdgesGraph;
+import graph.ConcreteVerticesGraph;
+import graph.Graph;
+import graph.MemoryStats;
+
+/**
+ * Tests for CompactGraph and the graph algorithms.
+ */
+public class GraphAlgorithmsTest {
+
+    // Testing strategy
+    //   CompactGraph.of: Graph, ConcreteEdgesGraph and ConcreteVerticesGraph input,
+    //     CompactGraph input, input visiting a target twice
+    //   CompactGraph.topTargets, topSources: k = 0, k < degree, k > degree
+    //   CompactGraph.forEachEdge: vertex with and without out-edges
+    //   CompactGraph.memoryStats: empty graph, more vertices than cached Integers
+    //   BreadthFirstSearch.hops: source alone, chain, unreachable vertices,
+    //     missing source
+    //   Dijkstra.shortestPaths: lighter path with more edges, unreachable target,
+    //     missing target
+    //   StronglyConnectedComponents.components: cycle, singleton, edges between
+    //     components, path too long to recurse over
+    //   PageRank.ranks: symmetric cycle, dangling vertex, one thread vs many
+    //     threads on a graph large enough to split
+    //   PageRank.balancedBounds: edges spread evenly, edges on one hub
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /* A -> B -> C -> A cycle, C -> D, and E alone. */
+    private static Graph<String> sample() {
+        Graph<String> graph = Graph.empty();
+        graph.set("A", "B", 1);
+        graph.set("B", "C", 2);
+        graph.set("C", "A", 3);
+        graph.set("C", "D", 4);
+        graph.add("E");
+        return graph;
+    }
+
+    @Test
+    public void testCompactGraphSnapshot() {
+        Graph<String> graph = new ConcreteVerticesGraph();
+        for (String vertex : List.of("A", "B", "C")) {
+            graph.add(vertex);
+        }
+        graph.set("A", "B", 5);
+        graph.set("C", "B", 2);
+        CompactGraph<String> compact = CompactGraph.of(graph);
+
+        assertEquals("expected same vertices", Set.of("A", "B", "C"), compact.vertices());
+        assertEquals("expected two edges", 2, compact.edgeCount());
+        assertEquals("expected targets", Map.of("B", 5), compact.targets("A"));
+        assertEquals("expected sources", Map.of("A", 5, "C", 2), compact.sources("B"));
+        assertEquals("expected -1 for missing vertex", -1, compact.indexOf("Z"));
+        assertEquals("expected label round trip", "C", compact.label(compact.indexOf("C")));
+        assertSame("expected snapshot reused", compact, CompactGraph.of(compact));
+        Map<String, Integer> edges = new HashMap<>();
+        compact.forEachEdge((source, target, weight) -> edges.put(source + "->" + target, weight));
+        assertEquals("expected every edge", Map.of("A->B", 5, "C->B", 2), edges);
+
+        graph.set("B", "A", 1);
+        assertEquals("expected snapshot unchanged", Map.of(), compact.targets("B"));
+    }
+
+    @Test
+    public void testCompactGraphOfConcreteEdgesGraph() {
+        ConcreteEdgesGraph graph = new ConcreteEdgesGraph();
+        graph.set("A", "B", 5);
+        graph.set("A", "B", 6);
+        graph.set("B", "C", 2);
+        graph.add("D");
+        CompactGraph<String> compact = CompactGraph.of(graph);
+
+        assertEquals("expected endpoints added by set", Set.of("A", "B", "C", "D"), compact.vertices());
+        assertEquals("expected one edge per pair", 2, compact.edgeCount());
+        assertEquals("expected updated weight", Map.of("B", 6), compact.targets("A"));
+        assertEquals("expected sources", Map.of("B", 2), compact.sources("C"));
+        assertEquals("expected same shortest path", List.of("A", "B", "C"),
+                Dijkstra.shortestPaths(graph, "A").path("C"));
+    }
+
+    @Test
+    public void testCompactGraphMergesRepeatedTargets() {
+        Graph<String> graph = new Graph<>() {
+            @Override
+            public void forEachEdge(EdgeConsumer<? super String> action) {
+                super.forEachEdge(action);
+                action.accept("A", "B", 9); // visit A -> B again with another weight
+            }
+        };
+        graph.set("A", "B", 1);
+        graph.set("A", "C", 2);
+        graph.set("C", "B", 3);
+        CompactGraph<String> compact = CompactGraph.of(graph);
+
+        assertEquals("expected one edge per pair", 3, compact.edgeCount());
+        assertEquals("expected the last weight visited", Map.of("B", 9, "C", 2), compact.targets("A"));
+        assertEquals("expected merged sources", Map.of("A", 9, "C", 3), compact.sources("B"));
+    }
+
+    @Test
+    public void testCompactGraphMemoryStats() {
+        MemoryStats empty = CompactGraph.of(Graph.<String>empty()).memoryStats();
+        assertEquals("expected no label references", 0, empty.labelBytes());
+
+        Graph<String> graph = Graph.empty();
+        for (int i = 0; i < 300; i++) {
+            graph.set("v" + i, "v" + (i + 1) % 300, 1);
+        }
+        MemoryStats stats = CompactGraph.of(graph).memoryStats();
+        assertEquals("expected every vertex", 300, stats.vertexCount());
+        assertEquals("expected every edge", 300, stats.edgeCount());
+        assertEquals("expected one reference per label", 300L * 4, stats.labelBytes());
+        assertTrue("expected id index and arrays to grow with the graph",
+                stats.adjacencyBytes() > empty.adjacencyBytes() + 300L * (32 + 6));
+        assertEquals("expected two int arrays of weights", 2 * (16 + 300L * 4), stats.weightBytes());
+    }
+
+    @Test
+    public void testCompactGraphTop() {
+        Graph<String> graph = Graph.empty();
+        graph.set("A", "B", 1);
+        graph.set("A", "C", 7);
+        graph.set("A", "D", 4);
+        graph.set("D", "C", 2);
+        CompactGraph<String> compact = CompactGraph.of(graph);
+
+        assertEquals("expected nothing for k = 0", Map.of(), compact.topTargets("A", 0));
+        assertEquals("expected heaviest first", List.of("C", "D"), List.copyOf(compact.topTargets("A", 2).keySet()));
+        assertEquals("expected every source", List.of("A", "D"), List.copyOf(compact.topSources("C", 5).keySet()));
+        assertEquals("expected nothing for missing vertex", Map.of(), compact.topTargets("Z", 3));
+    }
+
+    @Test
+    public void testBreadthFirstSearch() {
+        Map<String, Integer> hops = BreadthFirstSearch.hops(sample(), "A");
+        assertEquals("expected reachable vertices", Map.of("A", 0, "B", 1, "C", 2, "D", 3), hops);
+        assertEquals("expected distance order", List.of("A", "B", "C", "D"), List.copyOf(hops.keySet()));
+        assertEquals("expected isolated source alone", Map.of("E", 0), BreadthFirstSearch.hops(sample(), "E"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBreadthFirstSearchMissingSource() {
+        BreadthFirstSearch.hops(sample(), "Z");
+    }
+
+    @Test
+    public void testDijkstra() {
+        Graph<String> graph = sample();
+        graph.set("A", "D", 10);
+        ShortestPaths<String> paths = Dijkstra.shortestPaths(graph, "A");
+
+        assertEquals("expected source", "A", paths.source());
+        assertEquals("expected source at 0", 0, paths.distance("A"));
+        assertEquals("expected lighter path with more edges", 7, paths.distance("D"));
+        assertEquals("expected path vertices", List.of("A", "B", "C", "D"), paths.path("D"));
+        assertFalse("expected E unreachable", paths.isReachable("E"));
+        assertEquals("expected -1 for unreachable", -1, paths.distance("E"));
+        assertEquals("expected no path", List.of(), paths.path("E"));
+        assertEquals("expected -1 for missing", -1, paths.distance("Z"));
+    }
+
+    @Test
+    public void testStronglyConnectedComponents() {
+        Graph<String> graph = sample();
+        List<Set<String>> components = StronglyConnectedComponents.components(graph);
+        assertEquals("expected three components", 3, components.size());
+        assertTrue("expected cycle component", components.contains(Set.of("A", "B", "C")));
+        assertTrue("expected singletons", components.contains(Set.of("D")) && components.contains(Set.of("E")));
+        assertTrue("expected D before the cycle that leads to it",
+                components.indexOf(Set.of("D")) < components.indexOf(Set.of("A", "B", "C")));
+    }
+
+    @Test
+    public void testStronglyConnectedComponentsLongPath() {
+        Graph<String> graph = Graph.empty();
+        int length = 200_000;
+        for (int i = 0; i < length; i++) {
+            graph.set("v" + i, "v" + (i + 1), 1);
+        }
+        graph.set("v" + length, "v0", 1);
+        List<Set<String>> components = StronglyConnectedComponents.components(graph);
+        assertEquals("expected one cycle", 1, components.size());
+        assertEquals("expected every vertex", length + 1, components.get(0).size());
+    }
+
+    @Test
+    public void testPageRankCycle() {
+        Graph<String> graph = Graph.empty();
+        graph.set("A", "B", 2);
+        graph.set("B", "C", 2);
+        graph.set("C", "A", 2);
+        Map<String, Double> ranks = PageRank.ranks(graph);
+        for (String vertex : List.of("A", "B", "C")) {
+            assertEquals("expected equal ranks", 1.0 / 3, ranks.get(vertex), 1e-9);
+        }
+    }
+
+    @Test
+    public void testPageRankDanglingAndWeights() {
+        Graph<String> graph = Graph.empty();
+        graph.set("A", "B", 3);
+        graph.set("A", "C", 1);
+        Map<String, Double> ranks = PageRank.ranks(graph);
+        assertEquals("expected ranks to sum to 1",
+                1.0, ranks.values().stream().mapToDouble(Double::doubleValue).sum(), 1e-9);
+        assertTrue("expected heavier edge to carry more rank", ranks.get("B") > ranks.get("C"));
+        assertTrue("expected C above A", ranks.get("C") > ranks.get("A"));
+    }
+
+    @Test
+    public void testPageRankParallelMatchesSequential() {
+        Graph<String> graph = Graph.empty();
+        Random random = new Random(7);
+        int n = 20_000;
+        for (int i = 0; i < 5 * n; i++) {
+            graph.set("v" + random.nextInt(n), "v" + random.nextInt(n), 1 + random.nextInt(9));
+        }
+        CompactGraph<String> compact = CompactGraph.of(graph);
+        Map<String, Double> sequential = PageRank.ranks(compact, 0.85, 1e-12, 50, 1);
+        Map<String, Double> parallel = PageRank.ranks(compact, 0.85, 1e-12, 50, 4);
+        Map<String, Double> difference = new HashMap<>();
+        for (String vertex : compact.vertices()) {
+            double delta = Math.abs(sequential.get(vertex) - parallel.get(vertex));
+            if (delta > 1e-12) {
+                difference.put(vertex, delta);
+            }
+        }
+        assertEquals("expected same ranks from any number of threads", Map.of(), difference);
+    }
+
+    @Test
+    public void testPageRankBalancedBounds() {
+        // 8 vertices with one edge into each: ranges split the vertices evenly
+        int[] even = { 0, 1, 2, 3, 4, 5, 6, 7, 8 };
+        assertArrayEquals("expected equal vertex counts", new int[] { 0, 4, 8 }, PageRank.balancedBounds(even, 2));
+
+        // vertex 0 has 12 incoming edges and 7 others have none: it gets a range to itself
+        int[] hub = { 0, 12, 12, 12, 12, 12, 12, 12, 12 };
+        int[] bounds = PageRank.balancedBounds(hub, 2);
+        assertArrayEquals("expected the hub alone", new int[] { 0, 1, 8 }, bounds);
+    }
+}
@@ -0,0 +1,54 @@
+package metrics;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for LatencyHistogram.
+ */
+public class LatencyHistogramTest {
+    
+    // Testing strategy
+    //   record(): no values, small values (< 16ns), large values
+    //   percentile(): 0, median, 1
+    //   reset()
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    @Test
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals("expected no values", 0, histogram.count());
+        assertEquals("expected zero percentile", 0, histogram.percentile(0.99));
+    }
+    
+    @Test
+    public void testSmallValuesExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 9; nanos++) {
+            histogram.record(nanos);
+        }
+        assertEquals("expected exact median", 5, histogram.percentile(0.5));
+        assertEquals("expected exact max", 9, histogram.percentile(1));
+        assertEquals("expected exact mean", 5, histogram.mean());
+    }
+    
+    @Test
+    public void testLargeValuesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1_000);
+        }
+        histogram.record(1_000_000);
+        long p50 = histogram.percentile(0.5);
+        assertTrue("expected median within 1/16 of 1000ns", p50 >= 1_000 && p50 <= 1_000 + 1_000 / 16);
+        assertEquals("expected exact max", 1_000_000, histogram.percentile(1));
+        
+        histogram.reset();
+        assertEquals("expected no values after reset", 0, histogram.count());
+    }
+}
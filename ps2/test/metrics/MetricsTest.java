@@ -0,0 +1,102 @@
+package metrics;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import graph.Graph;
+
+/**
+ * Tests for Metrics.
+ */
+public class MetricsTest {
+
+    // Testing strategy
+    //   recording: off, on; instrumented Graph calls, counters added directly
+    //   snapshot(): histogram values, derived rates with zero and nonzero denominators
+    //   resetAll()
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private boolean wasOn;
+
+    @Before
+    public void startClean() {
+        wasOn = Metrics.isOn();
+        Metrics.resetAll();
+    }
+
+    @After
+    public void restore() {
+        Metrics.setOn(wasOn);
+        Metrics.resetAll();
+    }
+
+    @Test
+    public void testOffRecordsNothing() {
+        Metrics.setOn(false);
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        graph.targets("a");
+        graph.sources("b");
+
+        for (Map.Entry<String, Long> value : Metrics.snapshot().entrySet()) {
+            assertEquals("expected nothing recorded for " + value.getKey(), 0L, (long) value.getValue());
+        }
+    }
+
+    @Test
+    public void testOnRecordsGraphCalls() {
+        Metrics.setOn(true);
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 1);
+        graph.targets("a");
+
+        Map<String, Long> values = Metrics.snapshot();
+        assertEquals("expected two sets", 2L, (long) values.get("graph.set.count"));
+        assertEquals("expected one targets", 1L, (long) values.get("graph.targets.count"));
+        assertEquals("expected no sources", 0L, (long) values.get("graph.sources.count"));
+        assertTrue("expected max at least p50",
+                values.get("graph.set.maxNanos") >= values.get("graph.set.p50Nanos"));
+    }
+
+    @Test
+    public void testSnapshotDerivedRates() {
+        Map<String, Long> empty = Metrics.snapshot();
+        assertEquals("expected no hit rate without attempts", 0L, (long) empty.get("poet.bridge.hitPercent"));
+        assertEquals("expected no word rate without time", 0L, (long) empty.get("poet.tokenize.wordsPerSecond"));
+
+        Metrics.BRIDGE_ATTEMPTS.add(8);
+        Metrics.BRIDGE_HITS.add(2);
+        Metrics.TOKENIZED_WORDS.add(1000);
+        Metrics.TOKENIZE_NANOS.add(1_000_000);
+        Map<String, Long> values = Metrics.snapshot();
+        assertEquals("expected hit percentage", 25L, (long) values.get("poet.bridge.hitPercent"));
+        assertEquals("expected words per second", 1_000_000L, (long) values.get("poet.tokenize.wordsPerSecond"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotUnmodifiable() {
+        Metrics.snapshot().put("poet.bridge.hits", 1L);
+    }
+
+    @Test
+    public void testResetAll() {
+        Metrics.setOn(true);
+        Graph.<String>empty().set("a", "b", 1);
+        Metrics.BRIDGE_HITS.add(3);
+
+        Metrics.resetAll();
+        Map<String, Long> values = Metrics.snapshot();
+        assertEquals("expected histogram cleared", 0L, (long) values.get("graph.set.count"));
+        assertEquals("expected counter cleared", 0L, (long) values.get("poet.bridge.hits"));
+    }
+}
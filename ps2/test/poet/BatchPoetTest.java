@@ -0,0 +1,84 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import graph.Graph;
+
+/**
+ * Tests for BatchPoet.
+ */
+public class BatchPoetTest {
+
+    // Testing strategy
+    //   input lines: 0, 1, more than the in-flight window
+    //   workers: 1, > 1
+    //   progress: null, a stream
+    //   settings: valid, invalid
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /* Poet with the single bridge "a -> b -> c", so poems are deterministic. */
+    private static GraphPoet poet() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 1);
+        return new GraphPoet(Collections.emptyList(), graph);
+    }
+
+    private static String run(BatchPoet batch, String input, PrintStream progress) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long lines = batch.run(Channels.newChannel(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8))),
+                Channels.newChannel(out), progress);
+        String poems = out.toString(StandardCharsets.UTF_8);
+        assertEquals("expected one poem per line", lines, poems.chars().filter(c -> c == '\n').count());
+        return poems;
+    }
+
+    @Test
+    // covers 0 lines, 1 worker, null progress
+    public void testEmptyInput() throws IOException {
+        assertEquals("expected no output", "", run(new BatchPoet(poet(), 1, 0), "", null));
+    }
+
+    @Test
+    // covers 1 line, > 1 workers, a progress stream
+    public void testOneLineWithProgress() throws IOException {
+        ByteArrayOutputStream progress = new ByteArrayOutputStream();
+        String poems = run(new BatchPoet(poet(), 2, 0), "a c\n", new PrintStream(progress, true));
+        assertEquals("expected the bridged poem", "a b c\n", poems);
+        assertTrue("expected a final progress report",
+                progress.toString(StandardCharsets.UTF_8).startsWith("1 lines"));
+    }
+
+    @Test
+    // covers more lines than the in-flight window, > 1 workers
+    public void testManyLinesKeepOrder() throws IOException {
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            input.append(i % 2 == 0 ? "a c " : "c a ").append(i).append('\n');
+            expected.append(i % 2 == 0 ? "a b c " : "c a ").append(i).append('\n');
+        }
+        assertEquals("expected poems in input order", expected.toString(),
+                run(new BatchPoet(poet(), 4, 1), input.toString(), null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    // covers invalid settings
+    public void testNoWorkers() {
+        new BatchPoet(poet(), 0, 0);
+    }
+}
@@ -0,0 +1,53 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for CountMinSketch.
+ */
+public class CountMinSketchTest {
+    
+    // Testing strategy
+    //   estimate(): key never added, key added once, key added many times
+    //   errorBound(): empty sketch, after adds
+    //   withMemoryBudget(): budget too small, normal budget
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    @Test
+    public void testEstimateNeverUndercounts() {
+        CountMinSketch sketch = new CountMinSketch(16, 4);
+        for (int i = 0; i < 100; i++) {
+            sketch.add("word" + (i % 10));
+        }
+        sketch.add("the", 50);
+        
+        assertTrue("expected no undercount", sketch.estimate("the") >= 50);
+        assertTrue("expected overcount within the error bound",
+                sketch.estimate("the") <= 50 + sketch.errorBound());
+        assertEquals("expected total of all adds", 150, sketch.totalCount());
+    }
+    
+    @Test
+    public void testEmptySketch() {
+        CountMinSketch sketch = new CountMinSketch(8, 2);
+        assertEquals("expected zero estimate", 0, sketch.estimate("missing"));
+        assertEquals("expected zero error bound", 0, sketch.errorBound());
+    }
+    
+    @Test
+    public void testWithMemoryBudget() {
+        CountMinSketch sketch = CountMinSketch.withMemoryBudget(1 << 16);
+        assertTrue("expected counters to fit the budget", sketch.sizeInBytes() <= 1 << 16);
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void testWithMemoryBudgetTooSmall() {
+        CountMinSketch.withMemoryBudget(8);
+    }
+}
@@ -4,10 +4,21 @@ import static org.junit.Assert.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.junit.Test;
 
+import graph.Graph;
+import graph.ReadableGraph;
+import graph.Validation;
+
 /**
  * Tests for GraphPoet.
  */
@@ -20,8 +31,8 @@ public class GraphPoetTest {
     
     private static final GraphPoet instantiateGraph(String source) {
         try {
-            // Use absolute paths for the test files
-            final File corpus = new File("C:\\Users\\user\\OneDrive\\Desktop\\5thSemester\\Lab 9\\Lab 9\\ps2\\test\\resources\\" + source);
+            // paths are relative to the ps2 directory, where the tests run
+            final File corpus = new File("test/resources/" + source);
             GraphPoet graphPoet = new GraphPoet(corpus);
             return graphPoet;
         } catch (IOException e) {
@@ -29,7 +40,7 @@ public class GraphPoetTest {
         }
     }
 
-    // Instantiate GraphPoet objects using absolute paths
+    // Instantiate GraphPoet objects from the corpora in test/resources
     final GraphPoet graphOneWord = instantiateGraph("TestOneWord.txt");
     final GraphPoet graphOneLine = instantiateGraph("TestOneLine.txt");
     final GraphPoet graphMultipleLines = instantiateGraph("TestMultipleLines.txt");
@@ -107,4 +118,344 @@ public class GraphPoetTest {
                 || output.contains("cut")
                 || output.contains("shoot"));
     }
+    
+    @Test
+    // covers word pairs repeated more than twice
+    public void testAffinityGraph_RepeatedBigram() {
+        Graph<String> graph = GraphPoet.generateAffinityGraph(List.of("a", "b", "a", "b", "a", "b", "a"));
+        
+        assertEquals("Expected every adjacency counted", Map.of("b", 3), graph.targets("a"));
+        assertEquals("Expected every adjacency counted", Map.of("a", 3), graph.targets("b"));
+    }
+
+    // Tests for memoryStats()
+
+    @Test
+    // covers repeated words, whose first occurrences are the graph's labels
+    public void testMemoryStats_CountsEachStringOnce() {
+        List<String> words = List.of("a", "b", "a", "b", "a");
+        Graph<String> graph = GraphPoet.generateAffinityGraph(words);
+        GraphPoet poet = new GraphPoet(words, graph);
+
+        // list of 5 references: 24 + align(16 + 5 * 4) = 64 bytes;
+        // 3 later occurrences of a one-letter string: 3 * (24 + align(16 + 1)) = 144 bytes
+        assertEquals("Expected the list and repeated words only", 208, poet.memoryStats().corpusBytes());
+        assertEquals("Expected the graph counted as is", graph.memoryStats().totalBytes() + 208,
+                poet.memoryStats().totalBytes());
+        assertEquals("Expected no corpus without words", 0,
+                new GraphPoet(Collections.emptyList(), graph).memoryStats().corpusBytes());
+    }
+
+    // Tests for poem(String, int)
+    //   partition on limit: 0, excludes a lighter bridge, negative
+    
+    @Test
+    // covers limit excluding a lighter bridge, limit 0
+    public void testPoem_CandidateLimit() throws IOException {
+        // a -> x weighs 3 and a -> y weighs 2; both bridge a to b
+        GraphPoet poet = new GraphPoet(new File("test/resources/TestRepeatedBigrams.txt"));
+        
+        for (int i = 0; i < 5; i++) {
+            assertEquals("Expected only the heaviest candidate used", "a x b", poet.poem("a b", 1));
+        }
+        String unlimited = poet.poem("a b", 0);
+        assertTrue("Expected either bridge without a limit",
+                unlimited.equals("a x b") || unlimited.equals("a y b"));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    // covers negative limit
+    public void testPoem_NegativeCandidateLimit() throws IOException {
+        new GraphPoet(new File("test/resources/TestRepeatedBigrams.txt")).poem("a b", -1);
+    }
+    
+    // Tests for GraphPoet(File, long, int)
+    //   partition on maxEdges: at least the distinct bigrams, fewer
+    //   observe weights against exact counts, vertices against kept edges
+    
+    @Test
+    // covers maxEdges at least the distinct bigrams
+    public void testApproximate_AllBigramsKept() throws IOException {
+        File corpus = new File("test/resources/TestMultipleLines.txt");
+        Graph<String> exact = GraphPoet.generateAffinityGraph(GraphPoet.extractWordsFromFile(corpus));
+        GraphPoet approximate = new GraphPoet(corpus, 1 << 12, 10_000);
+        long bound = approximate.getApproximationErrorBound();
+        
+        assertTrue("Expected a positive error bound", bound > 0);
+        assertTrue("Expected corpus words not retained", approximate.getCorpusWords().isEmpty());
+        assertEquals("Expected every word with a bigram kept",
+                exact.vertices(), approximate.affinityGraph().vertices());
+        for (String source : exact.vertices()) {
+            Map<String, Integer> approximateTargets = approximate.affinityGraph().targets(source);
+            for (Map.Entry<String, Integer> edge : exact.targets(source).entrySet()) {
+                int weight = approximateTargets.get(edge.getKey());
+                assertTrue("Expected weight within the bound of " + source + " -> " + edge.getKey(),
+                        weight >= edge.getValue() && weight <= edge.getValue() + bound);
+            }
+        }
+    }
+    
+    @Test
+    // covers maxEdges fewer than the distinct bigrams
+    public void testApproximate_OnlyHeavyHitters() throws IOException {
+        File corpus = new File("test/resources/TestMultipleLines.txt");
+        Graph<String> exact = GraphPoet.generateAffinityGraph(GraphPoet.extractWordsFromFile(corpus));
+        GraphPoet approximate = new GraphPoet(corpus, 1 << 12, 5);
+        ReadableGraph<String> graph = approximate.affinityGraph();
+        long bound = approximate.getApproximationErrorBound();
+        
+        int edges = 0;
+        Set<String> endpoints = new HashSet<>();
+        for (String source : graph.vertices()) {
+            for (Map.Entry<String, Integer> edge : graph.targets(source).entrySet()) {
+                edges++;
+                endpoints.add(source);
+                endpoints.add(edge.getKey());
+                int exactWeight = exact.targets(source).getOrDefault(edge.getKey(), 0);
+                assertTrue("Expected weight within the bound of " + source + " -> " + edge.getKey(),
+                        edge.getValue() >= exactWeight && edge.getValue() <= exactWeight + bound);
+            }
+        }
+        assertTrue("Expected at most maxEdges edges", edges > 0 && edges <= 5);
+        assertEquals("Expected only endpoints of kept edges as vertices", endpoints, graph.vertices());
+        assertTrue("Expected fewer vertices than words", graph.vertices().size() < exact.vertices().size());
+    }
+    
+    // Tests for lazy()
+    //   partition on corpus: one line, multiple lines, bigrams repeated more than twice
+    //   partition on cache size: 1, larger than the vocabulary
+    //   observe weights, top-k order and footprint against the eager graph
+
+    @Test
+    // covers bigrams repeated more than twice, cache size 1
+    public void testLazy_SameWeightsAsEager() throws IOException {
+        File corpus = new File("test/resources/TestRepeatedBigrams.txt");
+        ReadableGraph<String> eager = new GraphPoet(corpus).affinityGraph();
+        GraphPoet lazyPoet = GraphPoet.lazy(corpus, 1);
+        ReadableGraph<String> lazy = lazyPoet.affinityGraph();
+
+        assertEquals("Expected the same vertices", eager.vertices(), lazy.vertices());
+        for (String word : eager.vertices()) {
+            assertEquals("Expected the same targets of " + word, eager.targets(word), lazy.targets(word));
+            assertEquals("Expected the same sources of " + word, eager.sources(word), lazy.sources(word));
+            for (String other : eager.vertices()) {
+                assertEquals("Expected the same weight", eager.weight(word, other), lazy.weight(word, other));
+            }
+        }
+        assertEquals("Expected the heaviest target first", List.of("x", "y"),
+                List.copyOf(lazy.topTargets("a", 2).keySet()));
+        assertEquals("Expected only the heaviest bridge used", "a x b", lazyPoet.poem("a b", 1));
+        assertTrue("Expected cached edges counted", lazyPoet.memoryStats().edgeCount() > 0);
+    }
+
+    @Test
+    // covers one line, cache size 1
+    public void testLazy_OneLineSmallCache() throws IOException {
+        GraphPoet lazy = GraphPoet.lazy(new File("test/resources/TestOneLine.txt"), 1);
+        
+        assertEquals("Expected same corpus words as eager poet",
+                graphOneLine.getCorpusWords(), lazy.getCorpusWords());
+        assertEquals("Expected same poem as eager poet",
+                "Seek to explore strange new life and exciting synergies!",
+                lazy.poem("Seek to explore new and exciting synergies!"));
+    }
+    
+    @Test
+    // covers multiple lines, cache larger than the vocabulary
+    public void testLazy_MultipleLinesLargeCache() throws IOException {
+        GraphPoet lazy = GraphPoet.lazy(new File("test/resources/TestMultipleLines.txt"), 1000);
+        
+        assertEquals("Expected unchanged input", "Like", lazy.poem("Like"));
+        for (int i = 0; i < 2; i++) {
+            String output = lazy.poem("you MAY me");
+            assertTrue("Expected a bridge word from the corpus",
+                    output.equals("you MAY write me")
+                    || output.equals("you MAY trod me")
+                    || output.equals("you MAY kill me")
+                    || output.equals("you MAY cut me")
+                    || output.equals("you MAY shoot me"));
+        }
+    }
+    
+    // Tests for fromEdgeList()
+    //   partition on lines: edges, vertex without edges
+
+    @Test
+    // covers edges and a vertex without edges
+    public void testFromEdgeList() throws IOException {
+        Path edgeList = Files.createTempFile("graph", ".tsv");
+        try {
+            Files.write(edgeList, "to\tseek\t2\nseek\tout\t1\nalone\n".getBytes(StandardCharsets.UTF_8));
+            GraphPoet poet = GraphPoet.fromEdgeList(edgeList.toFile());
+
+            assertEquals("Expected the bridge from the edge list", "to seek out", poet.poem("to out"));
+            assertEquals("Expected the edge weight from the edge list",
+                    Map.of("seek", 2), poet.affinityGraph().targets("to"));
+            assertTrue("Expected the lone vertex", poet.affinityGraph().vertices().contains("alone"));
+            assertTrue("Expected no corpus words", poet.getCorpusWords().isEmpty());
+        } finally {
+            Files.delete(edgeList);
+        }
+    }
+
+    // Tests for poem(String, BridgeSearch)
+    //   partition on path: none, one intermediate, several intermediates,
+    //     longer than maxIntermediates
+    //   partition on choice: stronger longer path vs weaker shorter one,
+    //     stronger shorter path vs longer one of larger sum, tie
+    //   partition on degree cap: excludes the only path, does not
+    //   partition on fan-out: word with far more edges than the degree cap
+    //   partition on time budget: left, already spent
+    
+    /* a -> x -> b (weight 2), a -> p -> q -> b (weight 9), a -> l1 -> l2 -> l3 -> b */
+    private static GraphPoet bridgePoet() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "x", 1);
+        graph.set("x", "b", 1);
+        graph.set("a", "p", 3);
+        graph.set("p", "q", 3);
+        graph.set("q", "b", 3);
+        graph.set("a", "l1", 1);
+        graph.set("l1", "l2", 1);
+        graph.set("l2", "l3", 1);
+        graph.set("l3", "b", 1);
+        graph.set("b", "c", 1);
+        graph.add("d");
+        return new GraphPoet(Collections.emptyList(), graph);
+    }
+    
+    @Test
+    // covers one intermediate, no path
+    public void testPoemBridgeSearchOneIntermediate() {
+        String output = bridgePoet().poem("A  B d", new BridgeSearch(1, 10, 1000));
+        assertEquals("Expected single bridge, spacing and case kept", "A  x B d", output);
+    }
+    
+    @Test
+    // covers several intermediates, stronger longer path chosen
+    public void testPoemBridgeSearchHeavierPath() {
+        String output = bridgePoet().poem("a b c", new BridgeSearch(2, 10, 1000));
+        assertEquals("Expected strongest path within two words", "a p q b c", output);
+    }
+    
+    @Test
+    // covers path longer than maxIntermediates, tie between lengths
+    public void testPoemBridgeSearchLengthLimitAndTie() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "l1", 1);
+        graph.set("l1", "l2", 1);
+        graph.set("l2", "l3", 1);
+        graph.set("l3", "b", 1);
+        graph.set("c", "m", 2);
+        graph.set("m", "d", 2);
+        graph.set("c", "n1", 2);
+        graph.set("n1", "n2", 2);
+        graph.set("n2", "d", 2);
+        GraphPoet poet = new GraphPoet(Collections.emptyList(), graph);
+        assertEquals("Expected path of three words found", "a l1 l2 l3 b",
+                poet.poem("a b", new BridgeSearch(3, 10, 1000)));
+        assertEquals("Expected no path within two words", "a b",
+                poet.poem("a b", new BridgeSearch(2, 10, 1000)));
+        assertEquals("Expected fewer words on equal strength", "c m d",
+                poet.poem("c d", new BridgeSearch(3, 10, 1000)));
+    }
+    
+    @Test
+    // covers degree cap excluding the only path
+    public void testPoemBridgeSearchDegreeCap() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "heavy", 5);
+        graph.set("a", "light", 1);
+        graph.set("light", "b", 1);
+        GraphPoet poet = new GraphPoet(Collections.emptyList(), graph);
+        assertEquals("Expected light bridge with a wide cap", "a light b",
+                poet.poem("a b", new BridgeSearch(1, 2, 1000)));
+        assertEquals("Expected no bridge when cap keeps only the heavy edge", "a b",
+                poet.poem("a b", new BridgeSearch(1, 1, 1000)));
+    }
+
+    @Test
+    // covers stronger shorter path vs longer one of larger sum
+    public void testPoemBridgeSearchStrongShortBeatsWeakLong() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "s", 5);
+        graph.set("s", "b", 5);
+        graph.set("a", "w1", 4);
+        graph.set("w1", "w2", 4);
+        graph.set("w2", "w3", 4);
+        graph.set("w3", "b", 4);
+        GraphPoet poet = new GraphPoet(Collections.emptyList(), graph);
+        assertEquals("Expected the strong single word over the weak path of larger sum", "a s b",
+                poet.poem("a b", new BridgeSearch(3, 10, 1000)));
+    }
+    
+    @Test
+    // covers fan-out far above the degree cap
+    public void testPoemBridgeSearchLargeFanOut() {
+        Graph<String> graph = Graph.empty();
+        for (int i = 0; i < 100_000; i++) {
+            graph.set("a", "t" + i, 1);
+            graph.set("t" + i, "b", 1);
+        }
+        graph.set("a", "best", 7);
+        graph.set("best", "b", 7);
+        GraphPoet poet = new GraphPoet(Collections.emptyList(), graph);
+        assertEquals("Expected the heaviest of many bridges", "a best b c best b",
+                poet.poem("a b c best b", new BridgeSearch(2, 4, 10_000)));
+    }
+    
+    @Test
+    // covers time budget already spent
+    public void testBridgeSearchExpiredBudget() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "x", 1);
+        graph.set("x", "b", 1);
+        BridgeSearch search = new BridgeSearch(1, 10, 1000);
+        BridgeSearch.Memo expired = search.memo(graph, System.nanoTime() - 1);
+        assertEquals("Expected no bridge once the deadline has passed", List.of(), search.find("a", "b", expired));
+        BridgeSearch.Memo open = search.memo(graph, System.nanoTime() + search.timeBudgetNanos());
+        assertEquals("Expected the bridge within the budget", List.of("x"), search.find("a", "b", open));
+    }
+
+    // Tests for rep checks at each Validation level
+    //   construction: valid, corpus word missing from the graph
+    //   poem: valid, corpus changed after construction
+    
+    /* True iff operation fails a rep check. */
+    private static boolean caught(Runnable operation) {
+        try {
+            operation.run();
+            return false;
+        } catch (AssertionError e) {
+            return true;
+        }
+    }
+    
+    @Test
+    public void testValidationLevels() {
+        Validation saved = Validation.level();
+        int savedInterval = Validation.sampleInterval();
+        try {
+            for (Validation level : Validation.values()) {
+                Validation.setLevel(level);
+                Validation.setSampleInterval(1);
+                Graph<String> graph = Graph.empty();
+                graph.set("a", "x", 1);
+                graph.set("x", "b", 1);
+                List<String> corpus = new ArrayList<>(List.of("a", "x", "b"));
+                GraphPoet poet = new GraphPoet(corpus, graph);
+                assertEquals("Expected a valid poet to pass at " + level, "a x b", poet.poem("a b"));
+    
+                assertEquals("Expected a missing corpus word caught at construction unless OFF at " + level,
+                        level != Validation.OFF, caught(() -> new GraphPoet(List.of("a", "ghost"), graph)));
+    
+                corpus.add("ghost");
+                assertEquals("Expected a poem to check the corpus only with the whole rep at " + level,
+                        level == Validation.SAMPLED || level == Validation.FULL, caught(() -> poet.poem("a b")));
+            }
+        } finally {
+            Validation.setLevel(saved);
+            Validation.setSampleInterval(savedInterval);
+        }
+    }
 }
@@ -0,0 +1,77 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for Main --batch.
+ */
+public class MainTest {
+
+    // Testing strategy
+    //   output: file, standard output
+    //   poet source: --graph edge list
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private Path graph;
+    private Path input;
+    private Path output;
+
+    @Before
+    public void writeFiles() throws IOException {
+        graph = Files.createTempFile("graph", ".tsv");
+        input = Files.createTempFile("input", ".txt");
+        output = Files.createTempFile("output", ".txt");
+        Files.write(graph, "a\tb\t1\nb\tc\t1\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(input, "a c\nc a\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void deleteFiles() throws IOException {
+        Files.deleteIfExists(graph);
+        Files.deleteIfExists(input);
+        Files.deleteIfExists(output);
+    }
+
+    @Test
+    // covers output to a file
+    public void testBatchToFile() throws IOException {
+        Main.main(new String[] { "--batch", "--graph", graph.toString(), "--input", input.toString(),
+                "--output", output.toString(), "--workers", "2" });
+        assertEquals("expected one poem per input line", "a b c\nc a\n",
+                new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    // covers output to standard output, which must stay open
+    public void testBatchToStandardOutput() throws IOException {
+        PrintStream original = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        PrintStream stdout = new PrintStream(captured, true, "UTF-8");
+        System.setOut(stdout);
+        try {
+            Main.main(new String[] { "--batch", "--graph", graph.toString(), "--input", input.toString() });
+            System.out.print("after");
+            System.out.flush();
+        } finally {
+            System.setOut(original);
+        }
+        assertFalse("expected standard output still open", stdout.checkError());
+        assertEquals("expected poems, then later output", "a b c\nc a\nafter",
+                captured.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,145 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Tests for PoemProcessor.
+ */
+public class PoemProcessorTest {
+    
+    // Testing strategy
+    //   ordering: ordered, unordered
+    //   demand: subscriber requests one at a time, subscriber requests nothing
+    //   subscribers: first, second
+    //   executor: accepts tasks, rejects them
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    private static GraphPoet poet() throws IOException {
+        return new GraphPoet(new File("test/resources/TestOneLine.txt"));
+    }
+    
+    /* Subscriber that requests one poem at a time and records them. */
+    private static class Recorder implements Flow.Subscriber<String> {
+        final List<String> poems = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch done = new CountDownLatch(1);
+        Throwable error;
+        Flow.Subscription subscription;
+        
+        @Override public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+        @Override public void onNext(String poem) {
+            poems.add(poem);
+            subscription.request(1);
+        }
+        @Override public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+        @Override public void onComplete() {
+            done.countDown();
+        }
+    }
+    
+    @Test
+    public void testOrderedDeliversInPromptOrder() throws Exception {
+        PoemProcessor processor = new PoemProcessor(poet(), ForkJoinPool.commonPool(), 4, 16, true);
+        Recorder recorder = new Recorder();
+        processor.subscribe(recorder);
+        try (SubmissionPublisher<String> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(processor);
+            for (int i = 0; i < 500; i++) {
+                publisher.submit("new and " + i);
+            }
+        }
+        assertTrue("expected completion", recorder.done.await(10, TimeUnit.SECONDS));
+        assertNull("expected no error", recorder.error);
+        assertEquals("expected one poem per prompt", 500, recorder.poems.size());
+        for (int i = 0; i < 500; i++) {
+            assertTrue("expected prompt order", recorder.poems.get(i).endsWith(" " + i));
+        }
+        assertEquals("expected bridge inserted", "new life and 0", recorder.poems.get(0));
+    }
+    
+    @Test
+    public void testNoDemandBoundsUpstreamRequests() throws Exception {
+        // counts down after each poem task, including the drain pass at its end
+        CountDownLatch generated = new CountDownLatch(8);
+        Executor executor = task -> ForkJoinPool.commonPool().execute(() -> {
+            task.run();
+            generated.countDown();
+        });
+        PoemProcessor processor = new PoemProcessor(poet(), executor, 2, 8, false);
+        AtomicLong requested = new AtomicLong();
+        processor.onSubscribe(new Flow.Subscription() {
+            @Override public void request(long n) {
+                requested.addAndGet(n);
+            }
+            @Override public void cancel() { }
+        });
+        processor.subscribe(new Flow.Subscriber<String>() {
+            @Override public void onSubscribe(Flow.Subscription subscription) { }
+            @Override public void onNext(String poem) { }
+            @Override public void onError(Throwable throwable) { }
+            @Override public void onComplete() { }
+        });
+        for (int i = 0; i < 8; i++) {
+            processor.onNext("to explore");
+        }
+        assertTrue("expected every poem generated", generated.await(10, TimeUnit.SECONDS));
+        assertEquals("expected no requests beyond the buffer", 8, requested.get());
+    }
+    
+    @Test
+    public void testRejectedTaskFailsStream() throws Exception {
+        PoemProcessor processor = new PoemProcessor(poet(), task -> {
+            throw new RejectedExecutionException("shut down");
+        }, 2, 8, true);
+        AtomicBoolean upstreamCancelled = new AtomicBoolean();
+        processor.onSubscribe(new Flow.Subscription() {
+            @Override public void request(long n) { }
+            @Override public void cancel() {
+                upstreamCancelled.set(true);
+            }
+        });
+        Recorder recorder = new Recorder();
+        processor.subscribe(recorder);
+        processor.onNext("to explore");
+        
+        assertTrue("expected termination", recorder.done.await(10, TimeUnit.SECONDS));
+        assertTrue("expected the rejection passed on", recorder.error instanceof RejectedExecutionException);
+        assertTrue("expected upstream cancelled", upstreamCancelled.get());
+        assertTrue("expected no poems", recorder.poems.isEmpty());
+    }
+    
+    @Test
+    public void testSecondSubscriberRejected() throws Exception {
+        PoemProcessor processor = new PoemProcessor(poet());
+        processor.subscribe(new Recorder());
+        Recorder second = new Recorder();
+        processor.subscribe(second);
+        assertTrue("expected second subscriber to get an error", second.error instanceof IllegalStateException);
+    }
+}
@@ -0,0 +1,181 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import graph.Graph;
+
+/**
+ * Tests for PoemServer.
+ */
+public class PoemServerTest {
+
+    // Testing strategy
+    //   endpoint: /poem, /poems
+    //   load: idle, every running permit taken with no queue
+    //   body: within the limit, over MAX_BODY_BYTES
+    //   lifecycle: started, stopped
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private PoemServer server;
+
+    @After
+    public void stopServer() {
+        release.countDown();
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    /*
+     * Poet with the single bridge "a -> b -> c"; writing a poem that starts with
+     * "wait" blocks until release counts down.
+     */
+    private GraphPoet poet() {
+        Graph<String> graph = new Graph<String>() {
+            @Override public Map<String, Integer> targets(String source) {
+                if (source.equals("wait")) {
+                    entered.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.targets(source);
+            }
+        };
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 1);
+        return new GraphPoet(Collections.emptyList(), graph);
+    }
+
+    private PoemServer start(int maxConcurrent, int maxQueued) throws IOException {
+        server = new PoemServer(poet(), new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                maxConcurrent, maxQueued, 0);
+        server.start();
+        return server;
+    }
+
+    /* Response status and body of one POST. */
+    private static final class Response {
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private Response post(String path, byte[] body) throws IOException {
+        URL url = new URL("http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.port() + path);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            } catch (IOException e) {
+                // the server may answer before reading the whole body
+            }
+            int status = connection.getResponseCode();
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                return new Response(status, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private Response post(String path, String body) throws IOException {
+        return post(path, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    // covers /poem, idle
+    public void testPoem() throws IOException {
+        start(2, 2);
+        Response response = post("/poem", "a c");
+        assertEquals("expected success", 200, response.status);
+        assertEquals("expected the bridge inserted", "a b c", response.body);
+    }
+
+    @Test
+    // covers /poems, idle
+    public void testPoems() throws IOException {
+        start(2, 2);
+        Response response = post("/poems", "a c\nc a\n");
+        assertEquals("expected success", 200, response.status);
+        assertEquals("expected one poem per line", "a b c\nc a\n", response.body);
+    }
+
+    @Test
+    // covers every running permit taken with no queue
+    public void testOverloadShed() throws Exception {
+        start(1, 0);
+        CompletableFuture<Response> blocked = CompletableFuture.supplyAsync(() -> {
+            try {
+                return post("/poem", "wait a");
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue("expected the first request to start", entered.await(5, TimeUnit.SECONDS));
+
+        Response shed = post("/poem", "a c");
+        assertEquals("expected overload shed", 503, shed.status);
+
+        release.countDown();
+        assertEquals("expected the running request to finish", 200, blocked.get(5, TimeUnit.SECONDS).status);
+        assertEquals("expected service after the load is gone", 200, post("/poem", "a c").status);
+    }
+
+    @Test
+    // covers body over MAX_BODY_BYTES
+    public void testBodyTooLarge() throws IOException {
+        start(1, 0);
+        byte[] body = new byte[PoemServer.MAX_BODY_BYTES + 1];
+        Arrays.fill(body, (byte) 'a');
+        assertEquals("expected body rejected", 413, post("/poem", body).status);
+        assertEquals("expected the permit released", 200, post("/poem", "a c").status);
+    }
+
+    @Test
+    // covers stopped
+    public void testStop() throws IOException {
+        start(1, 0);
+        assertEquals("expected success before stop", 200, post("/poem", "a c").status);
+        server.stop(0);
+        try {
+            post("/poem", "a c");
+            fail("expected no connection after stop");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
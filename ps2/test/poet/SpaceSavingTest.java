@@ -0,0 +1,43 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for SpaceSaving.
+ */
+public class SpaceSavingTest {
+    
+    // Testing strategy
+    //   offer(): fewer keys than capacity, more keys than capacity
+    //   count(), error(): tracked key, untracked key
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    @Test
+    public void testUnderCapacityIsExact() {
+        SpaceSaving summary = new SpaceSaving(4);
+        for (String key : "a b a c a".split(" ")) {
+            summary.offer(key);
+        }
+        assertEquals("expected exact count", 3, summary.count("a"));
+        assertEquals("expected no error", 0, summary.error("a"));
+        assertEquals("expected three tracked keys", 3, summary.size());
+    }
+    
+    @Test
+    public void testOverCapacityKeepsHeavyHitter() {
+        SpaceSaving summary = new SpaceSaving(2);
+        for (String key : "a b a c a d a e".split(" ")) {
+            summary.offer(key);
+        }
+        assertEquals("expected capacity respected", 2, summary.size());
+        assertTrue("expected heavy hitter tracked", summary.counts().containsKey("a"));
+        assertTrue("expected no undercount", summary.count("a") >= 4);
+        assertEquals("expected untracked key to report zero", 0, summary.count("b"));
+    }
+}